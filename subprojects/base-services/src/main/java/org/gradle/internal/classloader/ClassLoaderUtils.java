@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.classloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.jar.JarFile;
+
+public class ClassLoaderUtils {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassLoaderUtils.class);
+
+    /**
+     * Releases the files held open by the given ClassLoader, if it is a {@link URLClassLoader}. Classes that have not been loaded yet can no longer be
+     * loaded from the ClassLoader afterwards. Failures are logged and otherwise ignored.
+     */
+    public static void tryClose(ClassLoader classLoader) {
+        if (!(classLoader instanceof URLClassLoader)) {
+            return;
+        }
+        try {
+            if (classLoader instanceof Closeable) {
+                ((Closeable) classLoader).close();
+            } else {
+                closeJarFiles((URLClassLoader) classLoader);
+            }
+        } catch (Throwable throwable) {
+            LOGGER.debug(String.format("Could not close %s.", classLoader), throwable);
+        }
+    }
+
+    /**
+     * Closes the jar files opened by a {@link URLClassLoader} on Java 6, where it cannot be closed.
+     */
+    private static void closeJarFiles(URLClassLoader classLoader) throws Exception {
+        Object classPath = getField(classLoader, URLClassLoader.class, "ucp");
+        Collection<?> loaders;
+        synchronized (classPath) {
+            loaders = new ArrayList<Object>((Collection<?>) getField(classPath, classPath.getClass(), "loaders"));
+        }
+        for (Object loader : loaders) {
+            for (Class<?> type = loader.getClass(); type != null; type = type.getSuperclass()) {
+                try {
+                    Object jarFile = getField(loader, type, "jar");
+                    if (jarFile instanceof JarFile) {
+                        ((JarFile) jarFile).close();
+                    }
+                    break;
+                } catch (NoSuchFieldException e) {
+                    // Not declared by this class, or not a loader for a jar file
+                }
+            }
+        }
+    }
+
+    private static Object getField(Object target, Class<?> type, String name) throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.classloader
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Requires
+import org.gradle.util.TestPrecondition
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassLoaderUtilsTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp
+
+    @Requires(TestPrecondition.JDK7_OR_LATER)
+    def "closes url class loader"() {
+        def contents = tmp.createDir("contents")
+        contents.file("resource.txt").text = "content"
+        def jar = tmp.file("test.jar")
+        contents.zipTo(jar)
+        def classLoader = new URLClassLoader([jar.toURI().toURL()] as URL[], (ClassLoader) null)
+
+        expect:
+        classLoader.getResource("resource.txt") != null
+
+        when:
+        ClassLoaderUtils.tryClose(classLoader)
+
+        then:
+        classLoader.getResource("resource.txt") == null
+    }
+
+    def "ignores class loaders that cannot be closed"() {
+        when:
+        ClassLoaderUtils.tryClose(new ClassLoader(null) {})
+        ClassLoaderUtils.tryClose(null)
+
+        then:
+        noExceptionThrown()
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.configuration
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class BuildScriptPrecompilationIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        executer.requireOwnGradleUserHomeDir()
+        executer.withArgument("-D${BuildScriptPrecompiler.PRECOMPILE_SCRIPTS_PROPERTY}=true")
+        executer.withArgument("--info")
+    }
+
+    def "compiles build scripts of a multi-project build before the projects are configured"() {
+        given:
+        settingsFile << """
+include 'a', 'b', 'b:c'
+gradle.beforeProject { println "configuring \$it.path" }
+"""
+        buildFile << "allprojects { task thing }"
+        file("a/build.gradle") << "thing << { println 'a' }"
+        file("b/build.gradle") << "ext.value = 'b'"
+        file("b/c/build.gradle") << "thing.dependsOn ':a:thing'"
+
+        when:
+        run "thing"
+
+        then:
+        def compiled = compiledBuildScripts
+        compiled.size() == 8
+        compiled.every { it < configurationStart }
+        output.contains("configuring :b:c")
+    }
+
+    def "compiles only the classpath block of a project that declares a build script classpath before the projects are configured"() {
+        given:
+        settingsFile << """
+include 'a', 'a:b'
+gradle.beforeProject { println "configuring \$it.path" }
+"""
+        buildFile << "task thing"
+        file("a/build.gradle") << """
+buildscript {
+    dependencies { }
+}
+task thing
+"""
+        file("a/b/build.gradle") << "task thing"
+
+        when:
+        run "thing"
+
+        then:
+        def compiled = compiledBuildScripts
+        compiled.size() == 6
+        compiled.findAll { it > configurationStart }.size() == 3
+    }
+
+    private List<Integer> getCompiledBuildScripts() {
+        def lines = output.readLines()
+        return (0..<lines.size()).findAll { lines[it].startsWith("Compiling build file ") }
+    }
+
+    private int getConfigurationStart() {
+        return output.readLines().findIndexOf { it.startsWith("configuring ") }
+    }
+}
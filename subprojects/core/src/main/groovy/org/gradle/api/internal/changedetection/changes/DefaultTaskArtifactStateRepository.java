@@ -29,13 +29,15 @@ import org.gradle.api.internal.changedetection.state.TaskExecution;
 import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepository {
+public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepository, Stoppable {
 
     private final TaskHistoryRepository taskHistoryRepository;
     private final FileCollectionSnapshotter outputFilesSnapshotter;
@@ -50,6 +52,10 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         this.inputFilesSnapshotter = inputFilesSnapshotter;
     }
 
+    public void stop() {
+        CompositeStoppable.stoppable(taskHistoryRepository).stop();
+    }
+
     public TaskArtifactState getStateFor(final TaskInternal task) {
         return new TaskArtifactStateImpl(task, taskHistoryRepository.getHistory(task));
     }
@@ -22,11 +22,13 @@ import org.gradle.api.internal.changedetection.TaskArtifactState;
 import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.FilesSnapshotSet;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.reflect.Instantiator;
 
 import java.util.Collection;
 
-public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStateRepository {
+public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStateRepository, Stoppable {
 
     private final StartParameter startParameter;
     private final TaskArtifactStateRepository repository;
@@ -38,6 +40,10 @@ public class ShortCircuitTaskArtifactStateRepository implements TaskArtifactStat
         this.repository = repository;
     }
 
+    public void stop() {
+        CompositeStoppable.stoppable(repository).stop();
+    }
+
     public TaskArtifactState getStateFor(final TaskInternal task) {
 
         if (!task.getOutputs().getHasOutput()) { // Only false if no declared outputs AND no Task.upToDateWhen spec. We force to true for incremental tasks.
@@ -18,6 +18,7 @@ package org.gradle.api.internal.changedetection.state;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
@@ -25,15 +26,32 @@ import org.gradle.messaging.serialize.Serializer;
 import java.io.File;
 import java.util.*;
 
-public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
+/**
+ * Loads and stores the execution history of tasks. Updates to the history are queued when a task completes, and written to the cache in
+ * batches, either when enough updates have been queued or when this repository is stopped at the end of the build. This reduces the number
+ * of times the cache lock has to be acquired.
+ *
+ * <p>Losing queued updates, for example when the process crashes, is safe: the history of the affected tasks is left at their previous execution,
+ * whose output snapshot does not match the files the lost execution produced, so these tasks will be executed again.</p>
+ */
+public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository, Stoppable {
+    private static final int DEFAULT_MAX_PENDING_UPDATES = 50;
     private final TaskArtifactStateCacheAccess cacheAccess;
     private final FileSnapshotRepository snapshotRepository;
     private final PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
     private final TaskHistorySerializer serializer = new TaskHistorySerializer();
+    private final int maxPendingUpdates;
+    private final Object lock = new Object();
+    private Map<String, PendingUpdate> pendingUpdates = new LinkedHashMap<String, PendingUpdate>();
 
     public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository) {
+        this(cacheAccess, snapshotRepository, DEFAULT_MAX_PENDING_UPDATES);
+    }
+
+    public CacheBackedTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, FileSnapshotRepository snapshotRepository, int maxPendingUpdates) {
         this.cacheAccess = cacheAccess;
         this.snapshotRepository = snapshotRepository;
+        this.maxPendingUpdates = maxPendingUpdates;
         taskHistoryCache = cacheAccess.createCache("taskArtifacts", String.class, serializer);
     }
 
@@ -59,33 +77,58 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             }
 
             public void update() {
-                cacheAccess.useCache("Update task history", new Runnable() {
-                    public void run() {
-                        history.configurations.add(0, currentExecution);
-                        if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
-                            currentExecution.inputFilesSnapshotId = snapshotRepository.add(currentExecution.inputFilesSnapshot);
-                        }
-                        if (currentExecution.outputFilesSnapshotId == null && currentExecution.outputFilesSnapshot != null) {
-                            currentExecution.outputFilesSnapshotId = snapshotRepository.add(currentExecution.outputFilesSnapshot);
-                        }
-                        while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
-                            LazyTaskExecution execution = history.configurations.remove(history.configurations.size() - 1);
-                            if (execution.inputFilesSnapshotId != null) {
-                                snapshotRepository.remove(execution.inputFilesSnapshotId);
-                            }
-                            if (execution.outputFilesSnapshotId != null) {
-                                snapshotRepository.remove(execution.outputFilesSnapshotId);
-                            }
-                        }
-                        history.beforeSerialized();
-                        taskHistoryCache.put(task.getPath(), history);
+                Collection<PendingUpdate> updates = null;
+                synchronized (lock) {
+                    pendingUpdates.put(task.getPath(), new PendingUpdate(task.getPath(), history, currentExecution));
+                    if (pendingUpdates.size() >= maxPendingUpdates) {
+                        updates = takePendingUpdates();
                     }
-                });
+                }
+                if (updates != null) {
+                    write(updates);
+                }
             }
         };
     }
 
+    /**
+     * Writes all queued updates to the cache.
+     */
+    public void stop() {
+        Collection<PendingUpdate> updates;
+        synchronized (lock) {
+            updates = takePendingUpdates();
+        }
+        if (!updates.isEmpty()) {
+            write(updates);
+        }
+    }
+
+    private Collection<PendingUpdate> takePendingUpdates() {
+        Collection<PendingUpdate> updates = pendingUpdates.values();
+        pendingUpdates = new LinkedHashMap<String, PendingUpdate>();
+        return updates;
+    }
+
+    private void write(final Collection<PendingUpdate> updates) {
+        cacheAccess.useCache("Update task history", new Runnable() {
+            public void run() {
+                for (PendingUpdate update : updates) {
+                    update.write();
+                }
+            }
+        });
+    }
+
     private TaskHistory loadHistory(final TaskInternal task) {
+        boolean pending;
+        synchronized (lock) {
+            pending = pendingUpdates.containsKey(task.getPath());
+        }
+        if (pending) {
+            // Make sure the most recent execution of the task is visible
+            stop();
+        }
         return cacheAccess.useCache("Load task history", new Factory<TaskHistory>() {
             public TaskHistory create() {
                 ClassLoader original = serializer.getClassLoader();
@@ -133,6 +176,39 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         return bestMatch;
     }
 
+    private class PendingUpdate {
+        private final String taskPath;
+        private final TaskHistory history;
+        private final LazyTaskExecution currentExecution;
+
+        private PendingUpdate(String taskPath, TaskHistory history, LazyTaskExecution currentExecution) {
+            this.taskPath = taskPath;
+            this.history = history;
+            this.currentExecution = currentExecution;
+        }
+
+        void write() {
+            history.configurations.add(0, currentExecution);
+            if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
+                currentExecution.inputFilesSnapshotId = snapshotRepository.add(currentExecution.inputFilesSnapshot);
+            }
+            if (currentExecution.outputFilesSnapshotId == null && currentExecution.outputFilesSnapshot != null) {
+                currentExecution.outputFilesSnapshotId = snapshotRepository.add(currentExecution.outputFilesSnapshot);
+            }
+            while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
+                LazyTaskExecution execution = history.configurations.remove(history.configurations.size() - 1);
+                if (execution.inputFilesSnapshotId != null) {
+                    snapshotRepository.remove(execution.inputFilesSnapshotId);
+                }
+                if (execution.outputFilesSnapshotId != null) {
+                    snapshotRepository.remove(execution.outputFilesSnapshotId);
+                }
+            }
+            history.beforeSerialized();
+            taskHistoryCache.put(taskPath, history);
+        }
+    }
+
     private static class TaskHistorySerializer implements Serializer<TaskHistory> {
 
         private ClassLoader classLoader;
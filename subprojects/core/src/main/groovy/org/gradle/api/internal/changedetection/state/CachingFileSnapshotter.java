@@ -18,43 +18,163 @@ package org.gradle.api.internal.changedetection.state;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.serialize.Decoder;
 import org.gradle.messaging.serialize.Encoder;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CachingFileSnapshotter implements FileSnapshotter, Stoppable {
+    /**
+     * The minimum number of files in a batch for the files to be checked and hashed concurrently.
+     */
+    private static final int MIN_FILES_FOR_CONCURRENT_HASHING = 64;
 
-public class CachingFileSnapshotter implements FileSnapshotter {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
+    private final String hashAlgorithm;
     private final FileInfoSerializer serializer = new FileInfoSerializer();
+    private final ExecutorFactory executorFactory;
+    private final int maxConcurrentHashers;
+    private StoppableExecutor executor;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store) {
+        this(hasher, store, null, 1);
+    }
+
+    public CachingFileSnapshotter(Hasher hasher, PersistentStore store, ExecutorFactory executorFactory, int maxConcurrentHashers) {
         this.hasher = hasher;
+        this.hashAlgorithm = hasher.getAlgorithm();
+        this.executorFactory = executorFactory;
+        this.maxConcurrentHashers = maxConcurrentHashers;
         this.cache = store.createCache("fileHashes", File.class, serializer);
     }
 
     public FileInfo snapshot(File file) {
         FileInfo info = cache.get(file);
+        FileInfo current = refresh(file, info);
+        if (current != info) {
+            cache.put(file, current);
+        }
+        return current;
+    }
+
+    public List<FileSnapshot> snapshotAll(final List<File> files) {
+        // The cache is only read and written from the calling thread. The files are checked and hashed concurrently.
+        final FileInfo[] cached = new FileInfo[files.size()];
+        for (int i = 0; i < cached.length; i++) {
+            cached[i] = cache.get(files.get(i));
+        }
+
+        final FileInfo[] current = new FileInfo[cached.length];
+        forEachBatch(cached.length, new BatchAction() {
+            public void execute(int start, int end) {
+                for (int i = start; i < end; i++) {
+                    current[i] = refresh(files.get(i), cached[i]);
+                }
+            }
+        });
+
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] != cached[i]) {
+                cache.put(files.get(i), current[i]);
+            }
+        }
+        return Arrays.<FileSnapshot>asList(current);
+    }
+
+    public void stop() {
+        StoppableExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            executor.stop();
+        }
+    }
 
+    private FileInfo refresh(File file, FileInfo info) {
         long length = file.length();
         long timestamp = file.lastModified();
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        if (info != null && length == info.length && timestamp == info.timestamp && hashAlgorithm.equals(info.hashAlgorithm)) {
             return info;
         }
 
         byte[] hash = hasher.hash(file);
-        info = new FileInfo(hash, length, timestamp);
-        cache.put(file, info);
-        return info;
+        return new FileInfo(hashAlgorithm, hash, length, timestamp);
+    }
+
+    private void forEachBatch(int count, final BatchAction action) {
+        int batches = Math.min(maxConcurrentHashers, count / MIN_FILES_FOR_CONCURRENT_HASHING);
+        if (executorFactory == null || batches <= 1) {
+            action.execute(0, count);
+            return;
+        }
+
+        final int batchSize = (count + batches - 1) / batches;
+        final int otherBatches = (count - 1) / batchSize;
+        final CountDownLatch finished = new CountDownLatch(otherBatches);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        StoppableExecutor executor = getExecutor();
+        for (int batch = 1; batch <= otherBatches; batch++) {
+            final int batchStart = batch * batchSize;
+            final int batchEnd = Math.min(batchStart + batchSize, count);
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        action.execute(batchStart, batchEnd);
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            });
+        }
+
+        // Process the first batch on the calling thread
+        try {
+            action.execute(0, batchSize);
+        } finally {
+            try {
+                finished.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("File hasher");
+        }
+        return executor;
+    }
+
+    private interface BatchAction {
+        void execute(int start, int end);
     }
 
     public static class FileInfo implements FileSnapshot {
         private final byte[] hash;
+        private final String hashAlgorithm;
         private final long timestamp;
         private final long length;
 
-        public FileInfo(byte[] hash, long length, long timestamp) {
+        public FileInfo(String hashAlgorithm, byte[] hash, long length, long timestamp) {
+            this.hashAlgorithm = hashAlgorithm;
             this.hash = hash;
             this.length = length;
             this.timestamp = timestamp;
@@ -67,13 +187,15 @@ public class CachingFileSnapshotter implements FileSnapshotter {
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
         public FileInfo read(Decoder decoder) throws Exception {
+            String hashAlgorithm = decoder.readString();
             byte[] hash = decoder.readBinary();
             long timestamp = decoder.readLong();
             long length = decoder.readLong();
-            return new FileInfo(hash, length, timestamp);
+            return new FileInfo(hashAlgorithm, hash, length, timestamp);
         }
 
         public void write(Encoder encoder, FileInfo value) throws Exception {
+            encoder.writeString(value.hashAlgorithm);
             encoder.writeBinary(value.hash);
             encoder.writeLong(value.timestamp);
             encoder.writeLong(value.length);
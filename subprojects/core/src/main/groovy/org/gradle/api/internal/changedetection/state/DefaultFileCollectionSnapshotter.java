@@ -51,15 +51,20 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
         cacheAccess.useCache("Create file snapshot", new Runnable() {
             public void run() {
+                List<File> regularFiles = new ArrayList<File>();
                 for (File file : files) {
                     if (file.isFile()) {
-                        snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(snapshotter.snapshot(file).getHash()));
+                        regularFiles.add(file);
                     } else if (file.isDirectory()) {
                         snapshots.put(file.getAbsolutePath(), new DirSnapshot());
                     } else {
                         snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
                     }
                 }
+                List<FileSnapshot> fileSnapshots = snapshotter.snapshotAll(regularFiles);
+                for (int i = 0; i < regularFiles.size(); i++) {
+                    snapshots.put(regularFiles.get(i).getAbsolutePath(), new FileHashSnapshot(fileSnapshots.get(i).getHash()));
+                }
             }
         });
         return new FileCollectionSnapshotImpl(snapshots);
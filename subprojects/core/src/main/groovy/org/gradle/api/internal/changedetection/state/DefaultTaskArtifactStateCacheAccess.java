@@ -26,15 +26,28 @@ import org.gradle.internal.Factory;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCacheAccess, Closeable {
+    public static final String LOG_STRUCTURED_CACHES_PROPERTY = "org.gradle.cache.logStructured";
+    // Caches that are mostly written to, and which are cheaper to update when stored as a log
+    private static final Set<String> WRITE_MOSTLY_CACHES = new HashSet<String>(Arrays.asList("taskArtifacts", "outputFileStates"));
+
     private final CacheDecorator inMemoryDecorator;
+    private final boolean logStructuredCaches;
     private final PersistentCache cache;
 
     public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator) {
+        this(gradle, cacheRepository, decorator, false);
+    }
+
+    public DefaultTaskArtifactStateCacheAccess(Gradle gradle, CacheRepository cacheRepository, CacheDecorator decorator, boolean logStructuredCaches) {
         this.inMemoryDecorator = decorator;
+        this.logStructuredCaches = logStructuredCaches;
         cache = cacheRepository
                 .cache(gradle, "taskArtifacts")
                 .withDisplayName("task history cache")
@@ -48,7 +61,8 @@ public class DefaultTaskArtifactStateCacheAccess implements TaskArtifactStateCac
 
     public <K, V> PersistentIndexedCache<K, V> createCache(final String cacheName, final Class<K> keyType, final Serializer<V> valueSerializer) {
         PersistentIndexedCacheParameters<K, V> parameters = new PersistentIndexedCacheParameters<K, V>(cacheName, keyType, valueSerializer)
-                .cacheDecorator(inMemoryDecorator);
+                .cacheDecorator(inMemoryDecorator)
+                .logStructured(logStructuredCaches && WRITE_MOSTLY_CACHES.contains(cacheName));
         return cache.createCache(parameters);
     }
 
@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state;
 
 import java.io.File;
+import java.util.List;
 
 public interface FileSnapshotter {
     /**
@@ -24,4 +25,8 @@ public interface FileSnapshotter {
      */
     FileSnapshot snapshot(File file);
 
+    /**
+     * Takes a snapshot of the current content of each of the given files. The provided files must exist and be files. The snapshots are returned in the same order as the files.
+     */
+    List<FileSnapshot> snapshotAll(List<File> files);
 }
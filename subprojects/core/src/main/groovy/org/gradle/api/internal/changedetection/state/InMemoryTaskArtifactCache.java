@@ -18,109 +18,152 @@ package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
-import org.gradle.cache.internal.CacheDecorator;
-import org.gradle.cache.internal.FileLock;
-import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.internal.AbstractInMemoryCacheDecorator;
+import org.gradle.internal.UncheckedException;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
 
-import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
-public class InMemoryTaskArtifactCache implements CacheDecorator {
+/**
+ * Keeps the content of the task history caches in memory between builds. Each cache is bounded by the approximate number of bytes its
+ * entries occupy, rather than by the number of entries, so that a few large entries cannot exhaust the heap and many small entries are not
+ * needlessly evicted. The overall budget is a fraction of the maximum heap, and is shared between the caches according to {@link #CACHE_SHARES}.
+ */
+public class InMemoryTaskArtifactCache extends AbstractInMemoryCacheDecorator {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
-    private final static Object NULL = new Object();
 
-    private static final Map<String, Integer> CACHE_CAPS = new HashMap<String, Integer>();
+    /**
+     * The percentage of the maximum heap to use for all in-memory caches.
+     */
+    private static final int HEAP_PERCENTAGE = 10;
+
+    /**
+     * Rough per-entry overhead of the cache structures and the deserialized key and value, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 64;
+
+    /**
+     * Rough size of the information held for a single file, that is its path and hash, in bytes.
+     */
+    private static final int FILE_ENTRY_WEIGHT = 128;
+
+    /**
+     * The percentage of the budget each cache may use.
+     */
+    private static final Map<String, Integer> CACHE_SHARES = new HashMap<String, Integer>();
 
     static {
-        //it's the simplest implementation, not very nice
-        //at very least, the max size should be provided at creation, by the creator of the cache
-        //however, max size is a bit awkward in general and we should look into other options,
-        //like using the Weighter and relate the cache size to the available heap, etc.
-        CACHE_CAPS.put("fileSnapshots", 10000);
-        CACHE_CAPS.put("taskArtifacts", 2000);
-        CACHE_CAPS.put("outputFileStates", 3000);
-        CACHE_CAPS.put("fileHashes", 140000);
-        CACHE_CAPS.put("compilationState", 1000);
-
-        //In general, the in-memory cache must be capped at some level, otherwise it is reduces performance in truly gigantic builds
+        CACHE_SHARES.put("fileSnapshots", 40);
+        CACHE_SHARES.put("fileHashes", 25);
+        CACHE_SHARES.put("taskArtifacts", 15);
+        CACHE_SHARES.put("outputFileStates", 10);
+        CACHE_SHARES.put("compilationState", 10);
     }
 
     private final Object lock = new Object();
+    private final long maxWeight;
     private final Cache<String, Cache<Object, Object>> cache = CacheBuilder.newBuilder()
-            .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
+            .maximumSize(CACHE_SHARES.size() * 2) //X2 to factor in a child build (for example buildSrc)
             .build();
 
-    private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
-
-    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
-        final Cache<Object, Object> data = loadData(cacheId, cacheName);
-
-        return new MultiProcessSafePersistentIndexedCache<K, V>() {
-            public void close() {
-                original.close();
-            }
-
-            public V get(K key) {
-                assert key instanceof String || key instanceof Long || key instanceof File : "Unsupported key type: " + key;
-                Object value = data.getIfPresent(key);
-                if (value == NULL) {
-                    return null;
-                }
-                if (value != null) {
-                    return (V) value;
-                }
-                V out = original.get(key);
-                data.put(key, out == null ? NULL : out);
-                return out;
-            }
-
-            public void put(K key, V value) {
-                original.put(key, value);
-                data.put(key, value);
-            }
-
-            public void remove(K key) {
-                data.put(key, NULL);
-                original.remove(key);
-            }
+    public InMemoryTaskArtifactCache() {
+        this(Runtime.getRuntime().maxMemory() / 100 * HEAP_PERCENTAGE);
+    }
 
-            public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
-                boolean outOfDate;
-                synchronized (lock) {
-                    FileLock.State previousState = states.get(cacheId);
-                    outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
-                }
-
-                if (outOfDate) {
-                    LOG.info("Invalidating in-memory cache of {}", cacheId);
-                    data.invalidateAll();
-                }
-            }
+    /**
+     * @param maxWeight The approximate number of bytes to use for all in-memory caches.
+     */
+    public InMemoryTaskArtifactCache(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
 
-            public void onEndWork(FileLock.State currentCacheState) {
-                synchronized (lock) {
-                    states.put(cacheId, currentCacheState);
-                }
+    /**
+     * Returns the hit, miss and eviction counts accumulated over all caches that are currently held in memory.
+     */
+    public CacheStats getStats() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        synchronized (lock) {
+            for (Cache<Object, Object> data : cache.asMap().values()) {
+                stats = stats.plus(data.stats());
             }
-        };
+        }
+        return stats;
     }
 
-    private Cache<Object, Object> loadData(String cacheId, String cacheName) {
+    protected Cache<Object, Object> getData(String cacheId, String cacheName, Serializer<?> valueSerializer) {
         Cache<Object, Object> theData;
         synchronized (lock) {
             theData = this.cache.getIfPresent(cacheId);
             if (theData != null) {
                 LOG.info("In-memory cache of {}: Size{{}}, {}", cacheId, theData.size() , theData.stats());
             } else {
-                Integer maxSize = CACHE_CAPS.get(cacheName);
-                assert maxSize != null : "Unknown cache.";
-                theData = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+                Integer share = CACHE_SHARES.get(cacheName);
+                assert share != null : "Unknown cache.";
+                theData = CacheBuilder.newBuilder()
+                        .maximumWeight(Math.max(1, maxWeight / 100 * share))
+                        .weigher(new EntryWeigher(valueSerializer))
+                        .recordStats()
+                        .build();
                 this.cache.put(cacheId, theData);
             }
         }
         return theData;
     }
+
+    /**
+     * Estimates the weight of an entry from the structure of its value. Values of the hot per-file caches are weighed without serializing
+     * them, so that weighing stays cheap. Other values are only stored once per task execution and are weighed by their serialized size.
+     */
+    private static class EntryWeigher implements Weigher<Object, Object> {
+        private final Serializer<Object> serializer;
+
+        private EntryWeigher(Serializer<?> serializer) {
+            this.serializer = (Serializer<Object>) serializer;
+        }
+
+        public int weigh(Object key, Object value) {
+            long size = ENTRY_OVERHEAD + estimate(value);
+            return (int) Math.min(size, Integer.MAX_VALUE);
+        }
+
+        private long estimate(Object value) {
+            if (value == NULL || value instanceof Long) {
+                return 0;
+            }
+            if (value instanceof String) {
+                return ((String) value).length() * 2L;
+            }
+            if (value instanceof CachingFileSnapshotter.FileInfo) {
+                return FILE_ENTRY_WEIGHT;
+            }
+            if (value instanceof DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl) {
+                return (long) ((DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl) value).snapshots.size() * FILE_ENTRY_WEIGHT;
+            }
+            if (value instanceof OutputFilesCollectionSnapshotter.OutputFilesSnapshot) {
+                OutputFilesCollectionSnapshotter.OutputFilesSnapshot snapshot = (OutputFilesCollectionSnapshotter.OutputFilesSnapshot) value;
+                return (long) snapshot.rootFileIds.size() * FILE_ENTRY_WEIGHT + estimate(snapshot.filesSnapshot);
+            }
+            return serializedSize(value);
+        }
+
+        private long serializedSize(Object value) {
+            CountingOutputStream outputStream = new CountingOutputStream(ByteStreams.nullOutputStream());
+            KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+            try {
+                serializer.write(encoder, value);
+                encoder.flush();
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            return outputStream.getCount();
+        }
+    }
 }
@@ -18,9 +18,10 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.messaging.serialize.Serializer;
 
 public class NoOpDecorator implements CacheDecorator {
-    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, MultiProcessSafePersistentIndexedCache<K, V> original) {
+    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(String cacheId, String cacheName, Serializer<V> valueSerializer, MultiProcessSafePersistentIndexedCache<K, V> original) {
         return original;
     }
 }
@@ -20,6 +20,10 @@ import org.gradle.internal.hash.HashUtil;
 import java.io.File;
 
 public class DefaultHasher implements Hasher {
+    public String getAlgorithm() {
+        return "MD5";
+    }
+
     public byte[] hash(File file) {
         return HashUtil.createHash(file, "MD5").asByteArray();
     }
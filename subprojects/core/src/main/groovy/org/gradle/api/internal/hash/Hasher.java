@@ -18,5 +18,10 @@ package org.gradle.api.internal.hash;
 import java.io.File;
 
 public interface Hasher {
+    /**
+     * Returns an identifier for the hash function used by this hasher. Hashes created by hashers with different algorithms must not be compared.
+     */
+    String getAlgorithm();
+
     byte[] hash(File file);
 }
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import org.gradle.api.GradleException;
+
+public abstract class Hashers {
+    /**
+     * The system property used to select the hash function used for file snapshots.
+     */
+    public static final String FILE_HASH_ALGORITHM_PROPERTY = "org.gradle.fileHashAlgorithm";
+
+    private Hashers() {
+    }
+
+    /**
+     * Returns the hasher to use for file snapshots, as selected by the {@value #FILE_HASH_ALGORITHM_PROPERTY} system property. Defaults to MD5.
+     */
+    public static Hasher forFileSnapshots() {
+        return forAlgorithm(System.getProperty(FILE_HASH_ALGORITHM_PROPERTY, "md5"));
+    }
+
+    public static Hasher forAlgorithm(String algorithm) {
+        if (algorithm.equalsIgnoreCase("md5")) {
+            return new DefaultHasher();
+        }
+        if (algorithm.equalsIgnoreCase("murmur3")) {
+            return new Murmur3Hasher();
+        }
+        throw new GradleException(String.format("Unknown file hash algorithm '%s'. Supported algorithms are 'md5' and 'murmur3'.", algorithm));
+    }
+}
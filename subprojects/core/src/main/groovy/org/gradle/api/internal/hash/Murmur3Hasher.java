@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Hashes file content using the non-cryptographic 128 bit Murmur3 hash function, which is considerably cheaper to calculate than MD5.
+ */
+public class Murmur3Hasher implements Hasher {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    public String getAlgorithm() {
+        return "MURMUR3_128";
+    }
+
+    public byte[] hash(File file) {
+        try {
+            return Files.hash(file, HASH_FUNCTION).asBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file %s.", getAlgorithm(), file.getAbsolutePath()), e);
+        }
+    }
+}
@@ -26,6 +26,7 @@ public class PersistentIndexedCacheParameters<K, V> {
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private CacheDecorator cacheDecorator;
+    private boolean logStructured;
 
     public PersistentIndexedCacheParameters(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
         this.cacheName = cacheName;
@@ -67,4 +68,17 @@ public class PersistentIndexedCacheParameters<K, V> {
         this.cacheDecorator = cacheDecorator;
         return this;
     }
+
+    public boolean isLogStructured() {
+        return logStructured;
+    }
+
+    /**
+     * Stores the entries of the cache in an append-only log rather than a B-tree. This makes updates cheaper, at the cost of keeping an index of
+     * all keys in memory and of scanning the log whenever the cache is opened.
+     */
+    public PersistentIndexedCacheParameters<K, V> logStructured(boolean logStructured) {
+        this.logStructured = logStructured;
+        return this;
+    }
 }
\ No newline at end of file
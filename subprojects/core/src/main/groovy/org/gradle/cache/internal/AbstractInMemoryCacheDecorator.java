@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import com.google.common.cache.Cache;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.messaging.serialize.Serializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the entries of a cache in memory, in a {@link Cache} that may be shared with the caches decorated by other builds of this process. The entries
+ * are discarded when another process has written to the cache since this process last used it.
+ */
+public abstract class AbstractInMemoryCacheDecorator implements CacheDecorator {
+    private final static Logger LOG = Logging.getLogger(AbstractInMemoryCacheDecorator.class);
+
+    /**
+     * Stands for a key that has no value in the backing cache.
+     */
+    protected final static Object NULL = new Object();
+
+    private final Object lock = new Object();
+    private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+
+    public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, Serializer<V> valueSerializer, final MultiProcessSafePersistentIndexedCache<K, V> original) {
+        final Cache<Object, Object> data = getData(cacheId, cacheName, valueSerializer);
+
+        return new MultiProcessSafePersistentIndexedCache<K, V>() {
+            public void close() {
+                original.close();
+            }
+
+            public V get(K key) {
+                Object value = data.getIfPresent(key);
+                if (value == NULL) {
+                    return null;
+                }
+                if (value != null) {
+                    return (V) value;
+                }
+                V out = original.get(key);
+                data.put(key, out == null ? NULL : out);
+                return out;
+            }
+
+            public void put(K key, V value) {
+                original.put(key, value);
+                data.put(key, value);
+            }
+
+            public void remove(K key) {
+                data.put(key, NULL);
+                original.remove(key);
+            }
+
+            public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+                boolean outOfDate;
+                synchronized (lock) {
+                    FileLock.State previousState = states.get(cacheId);
+                    outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
+                }
+
+                if (outOfDate) {
+                    LOG.info("Invalidating in-memory cache of {}", cacheId);
+                    data.invalidateAll();
+                }
+            }
+
+            public void onEndWork(FileLock.State currentCacheState) {
+                synchronized (lock) {
+                    states.put(cacheId, currentCacheState);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the in-memory entries of the given cache, creating them when the cache has not been decorated before.
+     */
+    protected abstract Cache<Object, Object> getData(String cacheId, String cacheName, Serializer<?> valueSerializer);
+}
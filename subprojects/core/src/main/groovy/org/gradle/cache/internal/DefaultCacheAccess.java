@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
@@ -309,16 +310,27 @@ public class    DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
-                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
-            }
-        };
+        Factory<? extends CloseablePersistentIndexedCache<K, V>> indexedCacheFactory;
+        final File cacheFile;
+        if (parameters.isLogStructured()) {
+            cacheFile = new File(baseDir, parameters.getCacheName() + ".log");
+            indexedCacheFactory = new Factory<LogStructuredPersistentIndexedCache<K, V>>() {
+                public LogStructuredPersistentIndexedCache<K, V> create() {
+                    return new LogStructuredPersistentIndexedCache<K, V>(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                }
+            };
+        } else {
+            cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+            indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
+                public BTreePersistentIndexedCache<K, V> create() {
+                    return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                }
+            };
+        }
 
         MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
         CacheDecorator decorator = parameters.getCacheDecorator();
-        indexedCache = decorator == null ? indexedCache : decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), indexedCache);
+        indexedCache = decorator == null ? indexedCache : decorator.decorate(cacheFile.getAbsolutePath(), parameters.getCacheName(), parameters.getValueSerializer(), indexedCache);
 
         lock.lock();
         try {
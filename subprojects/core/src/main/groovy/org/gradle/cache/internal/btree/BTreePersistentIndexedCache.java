@@ -16,7 +16,7 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
-import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
 import org.gradle.messaging.serialize.Serializer;
 import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
 import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
@@ -41,7 +41,7 @@ import java.util.*;
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
-public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+public class BTreePersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
     private final File cacheFile;
     private final Serializer<K> keySerializer;
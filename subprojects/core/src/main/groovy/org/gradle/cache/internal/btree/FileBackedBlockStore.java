@@ -16,8 +16,6 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
-import org.gradle.internal.io.RandomAccessFileInputStream;
-import org.gradle.internal.io.RandomAccessFileOutputStream;
 
 import java.io.*;
 import java.util.zip.CRC32;
@@ -26,6 +24,7 @@ public class FileBackedBlockStore implements BlockStore {
     private RandomAccessFile file;
     private final File cacheFile;
     private long nextBlock;
+    private long fileLength;
     private Factory factory;
 
     public FileBackedBlockStore(File cacheFile) {
@@ -42,8 +41,9 @@ public class FileBackedBlockStore implements BlockStore {
         try {
             cacheFile.getParentFile().mkdirs();
             file = new RandomAccessFile(cacheFile, "rw");
-            nextBlock = file.length();
-            if (file.length() == 0) {
+            fileLength = file.length();
+            nextBlock = fileLength;
+            if (fileLength == 0) {
                 runnable.run();
             }
         } catch (IOException e) {
@@ -65,6 +65,7 @@ public class FileBackedBlockStore implements BlockStore {
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        fileLength = 0;
         nextBlock = 0;
     }
 
@@ -171,11 +172,10 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
-            file.seek(pos);
 
-            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(new BufferedOutputStream(
-                    new RandomAccessFileOutputStream(file)));
-            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
+            // Encode the whole block in memory, so that it can be written with a single call
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE + payloadSize + TAIL_SIZE);
+            DataOutputStream outputStream = new DataOutputStream(buffer);
 
             BlockPayload payload = getPayload();
 
@@ -187,55 +187,73 @@ public class FileBackedBlockStore implements BlockStore {
 
             // Write body
             payload.write(outputStream);
+            outputStream.flush();
 
             // Write checksum
-            outputStream.writeLong(checkSumOutputStream.checksum.getValue());
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.toByteArray());
+            outputStream.writeLong(checksum.getValue());
             outputStream.close();
 
+            file.seek(pos);
+            file.write(buffer.toByteArray());
+
             // Pad
-            if (file.length() < finalSize) {
+            if (fileLength < finalSize) {
                 file.setLength(finalSize);
+                fileLength = finalSize;
             }
         }
 
         public void read() throws Exception {
             long pos = getPos().getPos();
             assert pos >= 0;
-            if (pos + HEADER_SIZE >= file.length()) {
+            if (pos + HEADER_SIZE >= fileLength) {
                 throw blockCorruptedException();
             }
             file.seek(pos);
 
-            Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
-            DataInputStream inputStream = new DataInputStream(checkSumInputStream);
-
             BlockPayload payload = getPayload();
 
             // Read header
-            byte type = inputStream.readByte();
+            byte[] header = new byte[HEADER_SIZE];
+            file.readFully(header);
+            DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(header));
+            byte type = headerStream.readByte();
             if (type != (byte) BLOCK_MARKER) {
                 throw blockCorruptedException();
             }
-            type = inputStream.readByte();
+            type = headerStream.readByte();
             if (type != (byte) payload.getType()) {
                 throw blockCorruptedException();
             }
+            payloadSize = headerStream.readInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > fileLength) {
+                throw blockCorruptedException();
+            }
+
+            // Read the rest of the block with a single call. The payload may be shorter than the block, and the checksum follows the payload
+            byte[] body = new byte[payloadSize + TAIL_SIZE];
+            file.readFully(body);
+            ByteArrayInputStream bodyStream = new ByteArrayInputStream(body);
+            DataInputStream inputStream = new DataInputStream(bodyStream);
 
             // Read body
-            payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > file.length()) {
+            payload.read(inputStream);
+            if (bodyStream.available() < TAIL_SIZE) {
                 throw blockCorruptedException();
             }
-            payload.read(inputStream);
+            int bodyLength = body.length - bodyStream.available();
 
             // Read and verify checksum
-            long actualChecksum = checkSumInputStream.checksum.getValue();
-            long checksum = inputStream.readLong();
-            if (actualChecksum != checksum) {
+            CRC32 checksum = new CRC32();
+            checksum.update(header);
+            checksum.update(body, 0, bodyLength);
+            long actualChecksum = checksum.getValue();
+            long expectedChecksum = inputStream.readLong();
+            if (actualChecksum != expectedChecksum) {
                 throw blockCorruptedException();
             }
-            inputStream.close();
         }
 
         public RuntimeException blockCorruptedException() {
@@ -243,67 +261,4 @@ public class FileBackedBlockStore implements BlockStore {
                     FileBackedBlockStore.this));
         }
     }
-
-    private static class Crc32InputStream extends FilterInputStream {
-        private final CRC32 checksum;
-
-        private Crc32InputStream(InputStream inputStream) {
-            super(inputStream);
-            checksum = new CRC32();
-        }
-
-        @Override
-        public int read() throws IOException {
-            int b = in.read();
-            if (b >= 0) {
-                checksum.update(b);
-            }
-            return b;
-        }
-
-        @Override
-        public int read(byte[] bytes) throws IOException {
-            int count = in.read(bytes);
-            if (count > 0) {
-                checksum.update(bytes, 0, count);
-            }
-            return count;
-        }
-
-        @Override
-        public int read(byte[] bytes, int offset, int max) throws IOException {
-            int count = in.read(bytes, offset, max);
-            if (count > 0) {
-                checksum.update(bytes, offset, count);
-            }
-            return count;
-        }
-    }
-
-    private static class Crc32OutputStream extends FilterOutputStream {
-        private final CRC32 checksum;
-
-        private Crc32OutputStream(OutputStream outputStream) {
-            super(outputStream);
-            this.checksum = new CRC32();
-        }
-
-        @Override
-        public void write(int b) throws IOException {
-            checksum.update(b);
-            out.write(b);
-        }
-
-        @Override
-        public void write(byte[] bytes) throws IOException {
-            checksum.update(bytes);
-            out.write(bytes);
-        }
-
-        @Override
-        public void write(byte[] bytes, int offset, int count) throws IOException {
-            checksum.update(bytes, offset, count);
-            out.write(bytes, offset, count);
-        }
-    }
 }
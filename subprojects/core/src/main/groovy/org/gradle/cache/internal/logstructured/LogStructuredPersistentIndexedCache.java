@@ -0,0 +1,468 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
+import org.gradle.internal.io.RandomAccessFileInputStream;
+import org.gradle.messaging.serialize.Serializer;
+import org.gradle.messaging.serialize.kryo.KryoBackedDecoder;
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent indexed cache that appends every change to a log file and keeps an in-memory index from key to the position of its latest
+ * value in the log. Updates never rewrite existing data, which makes them cheaper than for {@link org.gradle.cache.internal.btree.BTreePersistentIndexedCache}
+ * for caches that are mostly written to.
+ *
+ * <p>The index is written to an index file when the cache is closed, and read back when the cache is next opened. The index file is removed
+ * before the log is first changed, so when the cache was not closed cleanly, for example because the process crashed, the index is instead
+ * rebuilt by scanning the log. A record that was not completely written is discarded along with everything after it. When the log contains more
+ * superseded records than live ones, it is compacted on close by copying the live records to a new file and replacing the log with it.</p>
+ *
+ * <p>This class is not thread-safe. Like the B-tree cache, it must only be used while holding the lock for the cache file, and must be closed
+ * when that lock is released.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final int RECORD_MARKER = 0xCD;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final int HEADER_SIZE = 2 + 4 + 4;
+    private static final int TAIL_SIZE = 8;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final int INDEX_FILE_VERSION = 1;
+
+    private final File cacheFile;
+    private final File compactionFile;
+    private final File indexFile;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final Map<RecordKey, Record> index = new HashMap<RecordKey, Record>();
+    private RandomAccessFile file;
+    private long length;
+    private long liveBytes;
+    private boolean indexFileCurrent;
+
+    public LogStructuredPersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.cacheFile = cacheFile;
+        this.compactionFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".compacting");
+        this.indexFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".index");
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        if (compactionFile.exists()) {
+            if (cacheFile.exists()) {
+                // Compaction did not finish, the log is still intact
+                delete(compactionFile);
+            } else {
+                // Compaction finished, but the new log was not moved into place
+                rename(compactionFile, cacheFile);
+            }
+        }
+        cacheFile.getParentFile().mkdirs();
+        file = new RandomAccessFile(cacheFile, "rw");
+        if (readIndexFile()) {
+            indexFileCurrent = true;
+        } else {
+            scan();
+        }
+    }
+
+    /**
+     * Loads the index from the index file. Returns false when there is no index file, or when it does not match the log.
+     */
+    private boolean readIndexFile() {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        try {
+            byte[] bytes = new byte[(int) indexFile.length()];
+            DataInputStream fileStream = new DataInputStream(new FileInputStream(indexFile));
+            try {
+                fileStream.readFully(bytes);
+            } finally {
+                fileStream.close();
+            }
+            if (bytes.length < TAIL_SIZE) {
+                return false;
+            }
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes, 0, bytes.length - TAIL_SIZE);
+            if (new DataInputStream(new ByteArrayInputStream(bytes, bytes.length - TAIL_SIZE, TAIL_SIZE)).readLong() != checksum.getValue()) {
+                return false;
+            }
+            DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - TAIL_SIZE));
+            if (inputStream.readInt() != INDEX_FILE_VERSION) {
+                return false;
+            }
+            long logLength = inputStream.readLong();
+            if (logLength != file.length()) {
+                return false;
+            }
+            long indexedLiveBytes = inputStream.readLong();
+            int count = inputStream.readInt();
+            Map<RecordKey, Record> records = new HashMap<RecordKey, Record>(count * 2);
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[inputStream.readInt()];
+                inputStream.readFully(key);
+                records.put(new RecordKey(key), new Record(inputStream.readLong(), inputStream.readInt()));
+            }
+            index.clear();
+            index.putAll(records);
+            length = logLength;
+            liveBytes = indexedLiveBytes;
+            return true;
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not read index file for %s. Scanning log instead.", this), e);
+            return false;
+        }
+    }
+
+    private void writeIndexFile() {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream outputStream = new DataOutputStream(buffer);
+            outputStream.writeInt(INDEX_FILE_VERSION);
+            outputStream.writeLong(length);
+            outputStream.writeLong(liveBytes);
+            outputStream.writeInt(index.size());
+            for (Map.Entry<RecordKey, Record> entry : index.entrySet()) {
+                outputStream.writeInt(entry.getKey().bytes.length);
+                outputStream.write(entry.getKey().bytes);
+                outputStream.writeLong(entry.getValue().pos);
+                outputStream.writeInt(entry.getValue().length);
+            }
+            outputStream.flush();
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.toByteArray());
+            outputStream.writeLong(checksum.getValue());
+            outputStream.close();
+
+            OutputStream fileStream = new FileOutputStream(indexFile);
+            try {
+                buffer.writeTo(fileStream);
+            } finally {
+                fileStream.close();
+            }
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not write index file for %s.", this), e);
+            indexFile.delete();
+        }
+    }
+
+    /**
+     * Removes the index file before the log is changed, so that the log is scanned when the cache is not closed cleanly.
+     */
+    private void discardIndexFile() throws IOException {
+        if (indexFileCurrent) {
+            if (indexFile.exists()) {
+                delete(indexFile);
+            }
+            indexFileCurrent = false;
+        }
+    }
+
+    private void scan() throws IOException {
+        index.clear();
+        liveBytes = 0;
+        long fileLength = file.length();
+        long pos = 0;
+        file.seek(0);
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new RandomAccessFileInputStream(file)));
+        while (pos < fileLength) {
+            int recordLength = readRecord(inputStream, pos, fileLength);
+            if (recordLength < 0) {
+                LOGGER.debug("Discarding incomplete data at offset {} of {}", pos, this);
+                file.setLength(pos);
+                break;
+            }
+            pos += recordLength;
+        }
+        length = pos;
+    }
+
+    /**
+     * Reads the record at the current position and updates the index. Returns the length of the record, or -1 when the record is incomplete or corrupt.
+     */
+    private int readRecord(DataInputStream inputStream, long pos, long fileLength) throws IOException {
+        if (pos + HEADER_SIZE + TAIL_SIZE > fileLength) {
+            return -1;
+        }
+        byte[] header = new byte[HEADER_SIZE];
+        inputStream.readFully(header);
+        DataInputStream headerStream = new DataInputStream(new ByteArrayInputStream(header));
+        if (headerStream.readByte() != (byte) RECORD_MARKER) {
+            return -1;
+        }
+        byte type = headerStream.readByte();
+        int keyLength = headerStream.readInt();
+        int valueLength = headerStream.readInt();
+        if ((type != PUT && type != REMOVE) || keyLength < 0 || valueLength < 0 || (type == REMOVE && valueLength != 0)) {
+            return -1;
+        }
+        long recordLength = (long) HEADER_SIZE + keyLength + valueLength + TAIL_SIZE;
+        if (pos + recordLength > fileLength) {
+            return -1;
+        }
+        byte[] key = new byte[keyLength];
+        inputStream.readFully(key);
+        CRC32 checksum = new CRC32();
+        checksum.update(header);
+        checksum.update(key);
+        byte[] buffer = new byte[8192];
+        for (int remaining = valueLength; remaining > 0;) {
+            int count = Math.min(remaining, buffer.length);
+            inputStream.readFully(buffer, 0, count);
+            checksum.update(buffer, 0, count);
+            remaining -= count;
+        }
+        if (inputStream.readLong() != checksum.getValue()) {
+            return -1;
+        }
+
+        RecordKey recordKey = new RecordKey(key);
+        Record previous;
+        if (type == PUT) {
+            previous = index.put(recordKey, new Record(pos, (int) recordLength));
+            liveBytes += recordLength;
+        } else {
+            previous = index.remove(recordKey);
+        }
+        if (previous != null) {
+            liveBytes -= previous.length;
+        }
+        return (int) recordLength;
+    }
+
+    public V get(K key) {
+        try {
+            Record record = index.get(new RecordKey(serialize(keySerializer, key)));
+            if (record == null) {
+                return null;
+            }
+            byte[] bytes = new byte[record.length];
+            file.seek(record.pos);
+            file.readFully(bytes);
+            DataInputStream inputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+            inputStream.skipBytes(2);
+            int keyLength = inputStream.readInt();
+            int valueLength = inputStream.readInt();
+            CRC32 checksum = new CRC32();
+            checksum.update(bytes, 0, bytes.length - TAIL_SIZE);
+            if (HEADER_SIZE + keyLength + valueLength + TAIL_SIZE != bytes.length
+                    || new DataInputStream(new ByteArrayInputStream(bytes, bytes.length - TAIL_SIZE, TAIL_SIZE)).readLong() != checksum.getValue()) {
+                LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
+                clear();
+                return null;
+            }
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(bytes, HEADER_SIZE + keyLength, valueLength));
+            return valueSerializer.read(decoder);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            byte[] valueBytes = serialize(valueSerializer, value);
+            Record record = append(PUT, keyBytes, valueBytes);
+            Record previous = index.put(new RecordKey(keyBytes), record);
+            liveBytes += record.length;
+            if (previous != null) {
+                liveBytes -= previous.length;
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    public void remove(K key) {
+        try {
+            byte[] keyBytes = serialize(keySerializer, key);
+            RecordKey recordKey = new RecordKey(keyBytes);
+            if (!index.containsKey(recordKey)) {
+                return;
+            }
+            append(REMOVE, keyBytes, new byte[0]);
+            liveBytes -= index.remove(recordKey).length;
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    private Record append(byte type, byte[] key, byte[] value) throws IOException {
+        discardIndexFile();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_SIZE + key.length + value.length + TAIL_SIZE);
+        DataOutputStream outputStream = new DataOutputStream(buffer);
+        outputStream.writeByte(RECORD_MARKER);
+        outputStream.writeByte(type);
+        outputStream.writeInt(key.length);
+        outputStream.writeInt(value.length);
+        outputStream.write(key);
+        outputStream.write(value);
+        outputStream.flush();
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.toByteArray());
+        outputStream.writeLong(checksum.getValue());
+        outputStream.close();
+
+        byte[] bytes = buffer.toByteArray();
+        Record record = new Record(length, bytes.length);
+        file.seek(length);
+        file.write(bytes);
+        length += bytes.length;
+        return record;
+    }
+
+    private <T> byte[] serialize(Serializer<T> serializer, T value) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        serializer.write(encoder, value);
+        encoder.flush();
+        return outputStream.toByteArray();
+    }
+
+    private void clear() throws IOException {
+        discardIndexFile();
+        file.setLength(0);
+        length = 0;
+        liveBytes = 0;
+        index.clear();
+    }
+
+    public void close() {
+        LOGGER.debug("Closing {}", this);
+        try {
+            if (length >= MIN_COMPACTION_SIZE && length - liveBytes > liveBytes) {
+                discardIndexFile();
+                compact();
+                writeIndexFile();
+            } else {
+                file.close();
+                if (!indexFileCurrent) {
+                    writeIndexFile();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            index.clear();
+        }
+    }
+
+    private void compact() throws IOException {
+        LOGGER.debug("Compacting {}", this);
+        FileOutputStream fileStream = new FileOutputStream(compactionFile);
+        long newLength = 0;
+        try {
+            OutputStream outputStream = new BufferedOutputStream(fileStream);
+            byte[] buffer = new byte[8192];
+            for (Map.Entry<RecordKey, Record> entry : index.entrySet()) {
+                Record record = entry.getValue();
+                if (buffer.length < record.length) {
+                    buffer = new byte[record.length];
+                }
+                file.seek(record.pos);
+                file.readFully(buffer, 0, record.length);
+                outputStream.write(buffer, 0, record.length);
+                entry.setValue(new Record(newLength, record.length));
+                newLength += record.length;
+            }
+            outputStream.flush();
+            // Make sure the new log is on disk before the old one is removed
+            fileStream.getFD().sync();
+        } finally {
+            fileStream.close();
+            file.close();
+        }
+        delete(cacheFile);
+        rename(compactionFile, cacheFile);
+        length = newLength;
+        liveBytes = newLength;
+    }
+
+    private static void delete(File file) throws IOException {
+        if (!file.delete()) {
+            throw new IOException(String.format("Could not delete %s.", file));
+        }
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            throw new IOException(String.format("Could not rename %s to %s.", from, to));
+        }
+    }
+
+    private static class Record {
+        final long pos;
+        final int length;
+
+        private Record(long pos, int length) {
+            this.pos = pos;
+            this.length = length;
+        }
+    }
+
+    private static class RecordKey {
+        private final byte[] bytes;
+        private final int hashCode;
+
+        private RecordKey(byte[] bytes) {
+            this.bytes = bytes;
+            this.hashCode = Arrays.hashCode(bytes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            RecordKey other = (RecordKey) obj;
+            return hashCode == other.hashCode && Arrays.equals(bytes, other.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
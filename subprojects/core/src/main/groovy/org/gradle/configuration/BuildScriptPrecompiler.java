@@ -0,0 +1,171 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.codehaus.groovy.classgen.Verifier;
+import org.gradle.api.Project;
+import org.gradle.api.initialization.dsl.ScriptHandler;
+import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectScript;
+import org.gradle.groovy.scripts.CachingScriptSource;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.Transformer;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.groovy.scripts.internal.StatementExtractingScriptTransformer;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.model.dsl.internal.transform.ClosureCreationInterceptingVerifier;
+import org.gradle.util.Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles the build scripts of the projects of a build into the script class cache, using multiple threads, before the projects are configured. The
+ * projects then load the compiled classes from the cache as they are configured.
+ *
+ * <p>A script is compiled against the classes visible to the script, so a script can be compiled ahead of time only when these are known before the projects
+ * are configured. This is the case when neither the project nor its ancestors declare a build script classpath or apply plugins using a {@code buildscript {}}
+ * or {@code plugins {}} block. For a project whose ancestors do not, but which does itself, only the {@code buildscript {}} and {@code plugins {}} blocks of
+ * the script are compiled ahead of time. Other scripts are compiled as usual, when the project is configured.</p>
+ *
+ * <p>Compiling scripts ahead of time is enabled with the {@value #PRECOMPILE_SCRIPTS_PROPERTY} system property.</p>
+ */
+public class BuildScriptPrecompiler {
+    public static final String PRECOMPILE_SCRIPTS_PROPERTY = "org.gradle.scripts.precompile";
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptPrecompiler.class);
+    private static final String CLASSPATH_CLOSURE_NAME = "buildscript";
+
+    private final FileCacheBackedScriptClassCompiler scriptCompiler;
+    private final ImportsReader importsReader;
+    private final DocumentationRegistry documentationRegistry;
+    private final ExecutorFactory executorFactory;
+    private final int parallelThreads;
+
+    /**
+     * @param parallelThreads The number of threads to use, as for {@link org.gradle.StartParameter#getParallelThreadCount()}. When parallel execution is
+     * not used, the scripts are compiled using a single thread.
+     */
+    public BuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptCompiler, ImportsReader importsReader, DocumentationRegistry documentationRegistry,
+                                  ExecutorFactory executorFactory, int parallelThreads) {
+        this.scriptCompiler = scriptCompiler;
+        this.importsReader = importsReader;
+        this.documentationRegistry = documentationRegistry;
+        this.executorFactory = executorFactory;
+        this.parallelThreads = parallelThreads;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PRECOMPILE_SCRIPTS_PROPERTY);
+    }
+
+    /**
+     * Compiles the build scripts of the given project and its descendants that can be compiled ahead of time. Failures are ignored, and are reported when
+     * the project is configured.
+     */
+    public void precompile(ProjectInternal rootProject) {
+        Clock clock = new Clock();
+        ClassLoader classLoader = rootProject.getBaseClassLoaderScope().getExportClassLoader();
+        List<CompileOperation> operations = new ArrayList<CompileOperation>();
+        collect(rootProject, false, classLoader, operations);
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        final List<CompileOperation> queue = operations;
+        final AtomicInteger next = new AtomicInteger();
+        StoppableExecutor executor = executorFactory.create("build script compiler");
+        try {
+            int threads = Math.min(numberOfThreads(), queue.size());
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        for (int index = next.getAndIncrement(); index < queue.size(); index = next.getAndIncrement()) {
+                            queue.get(index).run();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+        }
+        LOGGER.debug("Timing: Compiling {} build script passes ahead of time took {}", queue.size(), clock.getTime());
+    }
+
+    private int numberOfThreads() {
+        if (parallelThreads < 0) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        return Math.max(parallelThreads, 1);
+    }
+
+    private void collect(ProjectInternal project, boolean ancestorDeclaresClasspath, ClassLoader classLoader, List<CompileOperation> operations) {
+        ScriptSource source = new CachingScriptSource(importsReader.withImports(project.getBuildScriptSource()));
+        boolean declaresClasspath = declaresClasspath(project);
+
+        if (!ancestorDeclaresClasspath && !source.getResource().getText().matches("\\s*")) {
+            StatementExtractingScriptTransformer classpathTransformer = DefaultScriptPluginFactory.createClasspathTransformer(CLASSPATH_CLOSURE_NAME, ProjectScript.class, documentationRegistry);
+            operations.add(new CompileOperation(source, classLoader, classpathTransformer, new Verifier()));
+            if (!declaresClasspath) {
+                Transformer buildScriptTransformer = DefaultScriptPluginFactory.createBuildScriptTransformer(classpathTransformer, project.getBuildScriptSource());
+                operations.add(new CompileOperation(source, classLoader, buildScriptTransformer, new ClosureCreationInterceptingVerifier()));
+            }
+        }
+
+        for (Project child : project.getChildProjects().values()) {
+            collect((ProjectInternal) child, ancestorDeclaresClasspath || declaresClasspath, classLoader, operations);
+        }
+    }
+
+    /**
+     * Returns true when the classes visible to the build script of the given project, and those of its descendants, may be different to those visible
+     * to the root project. This is a conservative check, which looks for the names of the script blocks anywhere in the script, and for classpath
+     * dependencies added before the script runs, for example by an init script.
+     */
+    private boolean declaresClasspath(ProjectInternal project) {
+        String text = project.getBuildScriptSource().getResource().getText();
+        if (text.contains(CLASSPATH_CLOSURE_NAME) || text.contains("plugins")) {
+            return true;
+        }
+        return !project.getBuildscript().getConfigurations().getByName(ScriptHandler.CLASSPATH_CONFIGURATION).getDependencies().isEmpty();
+    }
+
+    private class CompileOperation implements Runnable {
+        private final ScriptSource source;
+        private final ClassLoader classLoader;
+        private final Transformer transformer;
+        private final Verifier verifier;
+
+        private CompileOperation(ScriptSource source, ClassLoader classLoader, Transformer transformer, Verifier verifier) {
+            this.source = source;
+            this.classLoader = classLoader;
+            this.transformer = transformer;
+            this.verifier = verifier;
+        }
+
+        public void run() {
+            try {
+                scriptCompiler.compileIntoCache(source, classLoader, transformer, ProjectScript.class, verifier);
+            } catch (Throwable t) {
+                LOGGER.debug(String.format("Could not compile %s ahead of time.", source.getDisplayName()), t);
+            }
+        }
+    }
+}
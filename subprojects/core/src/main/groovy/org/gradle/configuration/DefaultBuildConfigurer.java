@@ -22,9 +22,18 @@ import org.gradle.util.SingleMessageLogger;
 
 public class DefaultBuildConfigurer implements BuildConfigurer {
     private final ProjectConfigurer projectConfigurer;
+    private final BuildScriptPrecompiler scriptPrecompiler;
 
     public DefaultBuildConfigurer(ProjectConfigurer projectConfigurer) {
+        this(projectConfigurer, null);
+    }
+
+    /**
+     * @param scriptPrecompiler Compiles the build scripts ahead of time when all projects are configured and this is enabled. May be null.
+     */
+    public DefaultBuildConfigurer(ProjectConfigurer projectConfigurer, BuildScriptPrecompiler scriptPrecompiler) {
         this.projectConfigurer = projectConfigurer;
+        this.scriptPrecompiler = scriptPrecompiler;
     }
 
     public void configure(GradleInternal gradle) {
@@ -32,6 +41,9 @@ public class DefaultBuildConfigurer implements BuildConfigurer {
         if (gradle.getStartParameter().isConfigureOnDemand()) {
             projectConfigurer.configure(gradle.getRootProject());
         } else {
+            if (scriptPrecompiler != null && BuildScriptPrecompiler.isEnabled()) {
+                scriptPrecompiler.precompile(gradle.getRootProject());
+            }
             projectConfigurer.configureHierarchy(gradle.getRootProject());
         }
     }
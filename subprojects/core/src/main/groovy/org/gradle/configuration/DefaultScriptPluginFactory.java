@@ -75,6 +75,23 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
         return new ScriptPluginImpl(scriptSource, scriptHandler, targetScope, baseScope, classpathClosureName, scriptClass, ownerScript);
     }
 
+    /**
+     * Creates the transformer for the first pass over a script, which extracts the script blocks that configure the classpath of the script.
+     */
+    static StatementExtractingScriptTransformer createClasspathTransformer(String classpathClosureName, Class<? extends BasicScript> scriptType, DocumentationRegistry documentationRegistry) {
+        boolean supportsPluginsBlock = ProjectScript.class.isAssignableFrom(scriptType);
+        String onPluginBlockError = supportsPluginsBlock ? null : "Only Project build scripts can contain plugins {} blocks";
+        PluginsAndBuildscriptTransformer scriptBlockTransformer = new PluginsAndBuildscriptTransformer(classpathClosureName, onPluginBlockError, documentationRegistry);
+        return new StatementExtractingScriptTransformer(classpathClosureName, scriptBlockTransformer);
+    }
+
+    /**
+     * Creates the transformer for the second pass over a script, which compiles everything except the script blocks extracted by the first pass.
+     */
+    static BuildScriptTransformer createBuildScriptTransformer(StatementExtractingScriptTransformer classpathScriptTransformer, ScriptSource scriptSource) {
+        return new BuildScriptTransformer("no_" + classpathScriptTransformer.getId(), classpathScriptTransformer.invert(), scriptSource);
+    }
+
     private class ScriptPluginImpl implements ScriptPlugin {
         private final ScriptSource scriptSource;
         private final ClassLoaderScope targetScope;
@@ -118,13 +135,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
             ScriptCompiler compiler = scriptCompilerFactory.createCompiler(withImports);
             compiler.setClassloader(baseScope.getExportClassLoader());
 
-            boolean supportsPluginsBlock = ProjectScript.class.isAssignableFrom(scriptType);
-            String onPluginBlockError = supportsPluginsBlock ? null : "Only Project build scripts can contain plugins {} blocks";
-
-            PluginsAndBuildscriptTransformer scriptBlockTransformer = new PluginsAndBuildscriptTransformer(classpathClosureName, onPluginBlockError, documentationRegistry);
-
-            StatementExtractingScriptTransformer classpathScriptTransformer = new StatementExtractingScriptTransformer(classpathClosureName, scriptBlockTransformer);
-
+            StatementExtractingScriptTransformer classpathScriptTransformer = createClasspathTransformer(classpathClosureName, scriptType, documentationRegistry);
             compiler.setTransformer(classpathScriptTransformer);
 
             ScriptRunner<? extends BasicScript> classPathScriptRunner = compiler.compile(scriptType);
@@ -137,8 +148,7 @@ public class DefaultScriptPluginFactory implements ScriptPluginFactory {
 
             compiler.setClassloader(targetScope.getLocalClassLoader());
 
-            BuildScriptTransformer transformer = new BuildScriptTransformer("no_" + classpathScriptTransformer.getId(), classpathScriptTransformer.invert(), scriptSource);
-            compiler.setTransformer(transformer);
+            compiler.setTransformer(createBuildScriptTransformer(classpathScriptTransformer, scriptSource));
 
             // TODO - find a less tangled way of getting this in here, see the verifier impl for why it's needed
             compiler.setVerifier(new ClosureCreationInterceptingVerifier());
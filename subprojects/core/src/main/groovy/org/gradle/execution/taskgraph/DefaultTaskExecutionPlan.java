@@ -40,6 +40,7 @@ import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
 
+import java.io.File;
 import java.io.StringWriter;
 import java.util.*;
 import java.util.concurrent.locks.Condition;
@@ -57,12 +58,16 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
+    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final Set<TaskInfo> executingTasks = new HashSet<TaskInfo>();
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     private TaskFailureHandler failureHandler = new RethrowingFailureHandler();
     private final BuildCancellationToken cancellationToken;
     private final List<String> runningProjects = new ArrayList<String>();
+    private final Map<TaskInfo, List<String>> outputPaths = new HashMap<TaskInfo, List<String>>();
+    private boolean intraProjectParallelism;
     private boolean tasksCancelled;
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
@@ -278,6 +283,8 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
+        executionQueue.clear();
+        executionQueue.addAll(executionPlan.values());
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -398,8 +405,11 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
+            executionQueue.clear();
+            executingTasks.clear();
             failures.clear();
             runningProjects.clear();
+            outputPaths.clear();
         } finally {
             lock.unlock();
         }
@@ -417,6 +427,53 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         this.failureHandler = handler;
     }
 
+    public void prioritiseCriticalPath() {
+        lock.lock();
+        try {
+            final Map<TaskInfo, Integer> pathLengths = new HashMap<TaskInfo, Integer>();
+            Map<TaskInfo, Integer> planPositions = new HashMap<TaskInfo, Integer>();
+            for (TaskInfo taskInfo : executionPlan.values()) {
+                planPositions.put(taskInfo, planPositions.size());
+            }
+            List<TaskInfo> tasksInReverseOrder = new ArrayList<TaskInfo>(executionPlan.values());
+            Collections.reverse(tasksInReverseOrder);
+            // Every task appears in the plan after the tasks it must wait on, so the length of each path is known before it is propagated.
+            // Tasks that should run after another task count as waiting on it, so that the longer path of a task that should run later cannot
+            // move it ahead of the earlier task. Should run after edges that the plan does not follow, for example when they would form a cycle, are ignored.
+            for (TaskInfo taskInfo : tasksInReverseOrder) {
+                int pathLength = pathLengthOf(taskInfo, pathLengths);
+                int position = planPositions.get(taskInfo);
+                for (TaskInfo successor : Iterables.concat(taskInfo.getDependencySuccessors(), taskInfo.getMustSuccessors(), taskInfo.getShouldSuccessors())) {
+                    Integer successorPosition = planPositions.get(successor);
+                    if (successorPosition != null && successorPosition < position && pathLengthOf(successor, pathLengths) < pathLength + 1) {
+                        pathLengths.put(successor, pathLength + 1);
+                    }
+                }
+            }
+            Collections.sort(executionQueue, new Comparator<TaskInfo>() {
+                public int compare(TaskInfo taskInfo1, TaskInfo taskInfo2) {
+                    return pathLengthOf(taskInfo2, pathLengths) - pathLengthOf(taskInfo1, pathLengths);
+                }
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void allowIntraProjectParallelism() {
+        lock.lock();
+        try {
+            intraProjectParallelism = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int pathLengthOf(TaskInfo taskInfo, Map<TaskInfo, Integer> pathLengths) {
+        Integer pathLength = pathLengths.get(taskInfo);
+        return pathLength == null ? 1 : pathLength;
+    }
+
     public TaskInfo getTaskToExecute() {
         lock.lock();
         try {
@@ -427,15 +484,34 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                     }
                 }
                 TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                for (TaskInfo taskInfo : executionPlan.values()) {
+                TaskInfo withUnknownOutputs = null;
+                boolean allTasksComplete = executingTasks.isEmpty();
+                Iterator<TaskInfo> iterator = executionQueue.iterator();
+                while (iterator.hasNext()) {
+                    TaskInfo taskInfo = iterator.next();
+                    if (isFinished(taskInfo)) {
+                        // Executed or skipped - never needs to be looked at again
+                        iterator.remove();
+                        continue;
+                    }
                     allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && !runningProjects.contains(taskInfo.getTask().getProject().getPath())) {
-                        nextMatching = taskInfo;
-                        break;
+                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete()) {
+                        if (intraProjectParallelism && !outputPaths.containsKey(taskInfo)) {
+                            withUnknownOutputs = taskInfo;
+                            break;
+                        }
+                        if (canRunWithExecutingTasks(taskInfo)) {
+                            nextMatching = taskInfo;
+                            iterator.remove();
+                            break;
+                        }
                     }
                 }
-                if (allTasksComplete) {
+                if (withUnknownOutputs != null) {
+                    resolveOutputPaths(withUnknownOutputs);
+                    continue;
+                }
+                if (nextMatching == null && allTasksComplete) {
                     return null;
                 }
                 if (nextMatching == null) {
@@ -447,6 +523,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 } else {
                     if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
+                        executingTasks.add(nextMatching);
                         runningProjects.add(nextMatching.getTask().getProject().getPath());
                         return nextMatching;
                     } else {
@@ -460,6 +537,61 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
+    private boolean canRunWithExecutingTasks(TaskInfo taskInfo) {
+        if (!intraProjectParallelism) {
+            return !runningProjects.contains(taskInfo.getTask().getProject().getPath());
+        }
+        List<String> candidateOutputs = outputPathsOf(taskInfo);
+        for (TaskInfo executingTask : executingTasks) {
+            List<String> executingOutputs = outputPathsOf(executingTask);
+            if (candidateOutputs.isEmpty() || executingOutputs.isEmpty()) {
+                // Nothing is known about what the task modifies, so run it exclusively within its project
+                if (executingTask.getTask().getProject() == taskInfo.getTask().getProject()) {
+                    return false;
+                }
+            } else if (outputsOverlap(candidateOutputs, executingOutputs)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> outputPathsOf(TaskInfo taskInfo) {
+        List<String> paths = outputPaths.get(taskInfo);
+        return paths == null ? Collections.<String>emptyList() : paths;
+    }
+
+    /**
+     * Resolves the output files of the given task without holding the lock, as this may run arbitrary build logic. Must be called with the lock held.
+     */
+    private void resolveOutputPaths(TaskInfo taskInfo) {
+        List<String> paths = new ArrayList<String>();
+        lock.unlock();
+        try {
+            for (File file : taskInfo.getTask().getOutputs().getFiles()) {
+                paths.add(file.getAbsolutePath());
+            }
+        } finally {
+            lock.lock();
+        }
+        outputPaths.put(taskInfo, paths);
+    }
+
+    private static boolean outputsOverlap(List<String> outputs, List<String> otherOutputs) {
+        for (String path : outputs) {
+            for (String otherPath : otherOutputs) {
+                if (isSameOrAncestor(path, otherPath) || isSameOrAncestor(otherPath, path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSameOrAncestor(String path, String otherPath) {
+        return otherPath.startsWith(path) && (otherPath.length() == path.length() || otherPath.charAt(path.length()) == File.separatorChar);
+    }
+
     public void taskComplete(TaskInfo taskInfo) {
         lock.lock();
         try {
@@ -469,6 +601,7 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
+            executingTasks.remove(taskInfo);
             runningProjects.remove(taskInfo.getTask().getProject().getPath());
             condition.signalAll();
         } finally {
@@ -557,7 +690,10 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
+        if (!executingTasks.isEmpty()) {
+            return false;
+        }
+        for (TaskInfo taskInfo : executionQueue) {
             if (!taskInfo.isComplete()) {
                 return false;
             }
@@ -565,6 +701,13 @@ class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         return true;
     }
 
+    /**
+     * A task that has been executed or skipped will not change state again. Tasks that must not run are complete, but may still be enforced by a finalized task.
+     */
+    private boolean isFinished(TaskInfo taskInfo) {
+        return taskInfo.isComplete() && !taskInfo.isMustNotRun();
+    }
+
     private static class GraphEdge {
         private final TaskInfo from;
         private final TaskInfo to;
@@ -33,9 +33,13 @@ import java.util.concurrent.Executor;
 class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     private static final Logger LOGGER = Logging.getLogger(ParallelTaskPlanExecutor.class);
     private final int executorCount;
+    private final boolean prioritiseCriticalPath;
+    private final boolean intraProjectParallelism;
     private final ExecutorFactory executorFactory;
 
-    public ParallelTaskPlanExecutor(int numberOfParallelExecutors, ExecutorFactory executorFactory) {
+    public ParallelTaskPlanExecutor(int numberOfParallelExecutors, boolean prioritiseCriticalPath, boolean intraProjectParallelism, ExecutorFactory executorFactory) {
+        this.prioritiseCriticalPath = prioritiseCriticalPath;
+        this.intraProjectParallelism = intraProjectParallelism;
         this.executorFactory = executorFactory;
         if (numberOfParallelExecutors < 1) {
             throw new IllegalArgumentException("Not a valid number of parallel executors: " + numberOfParallelExecutors);
@@ -45,6 +49,12 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     }
 
     public void process(final TaskExecutionPlan taskExecutionPlan, final TaskExecutionListener taskListener) {
+        if (prioritiseCriticalPath) {
+            taskExecutionPlan.prioritiseCriticalPath();
+        }
+        if (intraProjectParallelism) {
+            taskExecutionPlan.allowIntraProjectParallelism();
+        }
         StoppableExecutor executor = executorFactory.create("Task worker");
         try {
             startAdditionalWorkers(taskExecutionPlan, taskListener, executor);
@@ -56,8 +66,8 @@ class ParallelTaskPlanExecutor extends AbstractTaskPlanExecutor {
     }
 
     private void startAdditionalWorkers(TaskExecutionPlan taskExecutionPlan, TaskExecutionListener taskListener, Executor executor) {
-        List<Project> projects = getAllProjects(taskExecutionPlan);
-        int numExecutors = Math.min(executorCount, projects.size());
+        int maxConcurrentTasks = intraProjectParallelism ? taskExecutionPlan.getTasks().size() : getAllProjects(taskExecutionPlan).size();
+        int numExecutors = Math.min(executorCount, maxConcurrentTasks);
 
         LOGGER.info("Using {} parallel executor threads", numExecutors);
 
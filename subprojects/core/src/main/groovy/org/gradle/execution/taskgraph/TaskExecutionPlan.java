@@ -47,4 +47,16 @@ public interface TaskExecutionPlan {
      * @return The task, or null if no matching tasks remain.
      */
     TaskInfo getTaskToExecute();
+
+    /**
+     * Requests that ready-to-execute tasks are provided in order of the length of the chain of tasks waiting on them, longest first, rather than in plan order.
+     * Dependency, finalizer and ordering constraints between tasks are still honoured.
+     */
+    void prioritiseCriticalPath();
+
+    /**
+     * Allows tasks of the same project to execute concurrently, provided their declared outputs do not overlap.
+     * Tasks that declare no outputs continue to execute exclusively within their project.
+     */
+    void allowIntraProjectParallelism();
 }
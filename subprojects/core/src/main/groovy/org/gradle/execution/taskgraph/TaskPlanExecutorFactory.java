@@ -20,17 +20,35 @@ import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.ExecutorFactory;
 
 public class TaskPlanExecutorFactory implements Factory<TaskPlanExecutor> {
+    /**
+     * When set to true, parallel execution starts the tasks heading the longest chains of dependent tasks first.
+     */
+    public static final String PRIORITISE_CRITICAL_PATH_PROPERTY = "org.gradle.parallel.prioritiseCriticalPath";
+
+    /**
+     * When set to true, parallel execution runs tasks of the same project concurrently when their declared outputs do not overlap.
+     */
+    public static final String INTRA_PROJECT_PARALLELISM_PROPERTY = "org.gradle.parallel.intra";
+
     private final int parallelThreads;
+    private final boolean prioritiseCriticalPath;
+    private final boolean intraProjectParallelism;
     private final ExecutorFactory executorFactory;
 
     public TaskPlanExecutorFactory(int parallelThreads, ExecutorFactory executorFactory) {
+        this(parallelThreads, false, false, executorFactory);
+    }
+
+    public TaskPlanExecutorFactory(int parallelThreads, boolean prioritiseCriticalPath, boolean intraProjectParallelism, ExecutorFactory executorFactory) {
         this.parallelThreads = parallelThreads;
+        this.prioritiseCriticalPath = prioritiseCriticalPath;
+        this.intraProjectParallelism = intraProjectParallelism;
         this.executorFactory = executorFactory;
     }
 
     public TaskPlanExecutor create() {
         if (executeProjectsInParallel()) {
-            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), executorFactory);
+            return new ParallelTaskPlanExecutor(numberOfParallelThreads(), prioritiseCriticalPath, intraProjectParallelism, executorFactory);
         }
         return new DefaultTaskPlanExecutor();
     }
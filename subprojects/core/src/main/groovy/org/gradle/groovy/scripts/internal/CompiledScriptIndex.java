@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts.internal;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers which directory of the script class cache contains the current compiled classes of a script. Lives for the lifetime of the process, so
+ * that a build in the daemon can load the classes of a script compiled by an earlier build without looking in or locking the script class cache.
+ *
+ * <p>Holds a single entry per script, so that the entries for earlier versions of a script that has been edited are dropped.</p>
+ */
+public class CompiledScriptIndex {
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Returns the directory known to contain the current compiled classes of the given cache entry of the given script, or null if not known.
+     */
+    public File get(String scriptId, File entryDir) {
+        Entry entry = entries.get(scriptId);
+        if (entry == null || !entry.entryDir.equals(entryDir)) {
+            return null;
+        }
+        if (!entry.classesDir.isDirectory()) {
+            // Has been removed since, for example by deleting the cache directory
+            entries.remove(scriptId, entry);
+            return null;
+        }
+        return entry.classesDir;
+    }
+
+    /**
+     * Records the directory containing the current compiled classes of the given script, replacing any directory recorded for an earlier version of the
+     * script.
+     */
+    public void put(String scriptId, File entryDir, File classesDir) {
+        entries.put(scriptId, new Entry(entryDir, classesDir));
+    }
+
+    private static class Entry {
+        final File entryDir;
+        final File classesDir;
+
+        private Entry(File entryDir, File classesDir) {
+            this.entryDir = entryDir;
+            this.classesDir = classesDir;
+        }
+    }
+}
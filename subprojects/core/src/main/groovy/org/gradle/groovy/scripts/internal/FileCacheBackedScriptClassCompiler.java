@@ -17,106 +17,261 @@ package org.gradle.groovy.scripts.internal;
 
 import groovy.lang.Script;
 import org.codehaus.groovy.classgen.Verifier;
-import org.gradle.api.Action;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.CacheValidator;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.FileLockManager;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.Transformer;
-import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.Factory;
 import org.gradle.internal.hash.HashUtil;
 import org.gradle.logging.ProgressLogger;
 import org.gradle.logging.ProgressLoggerFactory;
+import org.gradle.util.GFileUtils;
 
 import java.io.Closeable;
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
+ *
+ * <p>The classes of all scripts are kept in a single cache, in a directory named after a hash of the script class name, base class, transformer and source.
+ * The classes are stored in a numbered subdirectory of this directory, and the highest numbered subdirectory holds the current classes of the script. The
+ * cache is locked only while looking for or adding the classes of a script. Once added, the classes in a subdirectory are never changed or removed, so they
+ * can be loaded without holding the lock, even by another process. Recompiling a script adds a new subdirectory rather than replacing the existing one.
+ * The subdirectories that are known to be current are recorded in a {@link CompiledScriptIndex}, so that later builds in the same process do not need to
+ * look in the cache at all.</p>
+ *
+ * <p>Scripts are compiled into a temporary directory, without holding the lock, which is then moved into place.</p>
+ *
+ * <p>Each build that uses the classes of a script marks its directory as used. At most once a day, when the cache is opened, directories of scripts that
+ * have not been used for a number of days are removed, along with subdirectories that have been superseded by a recompilation for a while, and temporary
+ * directories left behind by a process that crashed while compiling. A script that has been edited is stored in a new directory, so its earlier versions
+ * are removed once they are no longer used.</p>
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler, Closeable {
+    private static final String TEMP_DIR_SUFFIX = ".tmp";
+    private static final String CLEANUP_MARKER = "cleanup.marker";
+    private static final long CLEANUP_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    private static final long STALE_TEMP_DIR_AGE = TimeUnit.DAYS.toMillis(1);
+    private static final long SUPERSEDED_CLASSES_DIR_AGE = TimeUnit.DAYS.toMillis(1);
+    private static final long UNUSED_ENTRY_AGE = TimeUnit.DAYS.toMillis(7);
     private final ScriptCompilationHandler scriptCompilationHandler;
-    private ProgressLoggerFactory progressLoggerFactory;
+    private final ProgressLoggerFactory progressLoggerFactory;
     private final CacheRepository cacheRepository;
     private final CacheValidator validator;
-    private final CompositeStoppable caches = new CompositeStoppable();
+    private final CompiledScriptIndex compiledScripts;
+    private final Object lock = new Object();
+    private final Set<File> recompiled = new HashSet<File>();
+    private final Set<File> used = new HashSet<File>();
+    private PersistentCache cache;
 
-    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler, ProgressLoggerFactory progressLoggerFactory) {
+    public FileCacheBackedScriptClassCompiler(CacheRepository cacheRepository, CacheValidator validator, ScriptCompilationHandler scriptCompilationHandler,
+                                              ProgressLoggerFactory progressLoggerFactory, CompiledScriptIndex compiledScripts) {
         this.cacheRepository = cacheRepository;
         this.validator = validator;
         this.scriptCompilationHandler = scriptCompilationHandler;
         this.progressLoggerFactory = progressLoggerFactory;
+        this.compiledScripts = compiledScripts;
     }
 
     public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass, Verifier verifier) {
-        Map<String, Object> properties = new HashMap<String, Object>();
-        properties.put("source.filename", source.getFileName());
-        properties.put("source.hash", HashUtil.createCompactMD5(source.getResource().getText()));
-
-        String cacheName = String.format("scripts/%s/%s/%s", source.getClassName(), scriptBaseClass.getSimpleName(), transformer.getId());
-        PersistentCache cache = cacheRepository.cache(cacheName)
-                .withProperties(properties)
-                .withValidator(validator)
-                .withDisplayName(String.format("%s class cache for %s", transformer.getId(), source.getDisplayName()))
-                .withInitializer(new ProgressReportingInitializer(progressLoggerFactory, new CacheInitializer(source, classLoader, transformer, verifier, scriptBaseClass)))
-                .open();
-
-        // This isn't quite right. The cache will be closed at the end of the build, releasing the shared lock on the classes. Instead, the cache for a script should be
-        // closed once we no longer require the script classes. This may be earlier than the end of the current build, or it may used across multiple builds
-        caches.add(cache);
-
-        File classesDir = classesDir(cache);
+        File classesDir = compileIntoCache(source, classLoader, transformer, scriptBaseClass, verifier);
         return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
     }
 
+    /**
+     * Compiles the given script into the cache, if not already there, without loading its classes. May be called concurrently from multiple threads.
+     *
+     * @return The directory containing the compiled classes.
+     */
+    public File compileIntoCache(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass, Verifier verifier) {
+        String scriptId = String.format("%s/%s/%s", source.getClassName(), scriptBaseClass.getName(), transformer.getId());
+        String hash = HashUtil.createCompactMD5(String.format("%s/%s", scriptId, source.getResource().getText()));
+        PersistentCache cache = getCache();
+        File entryDir = new File(cache.getBaseDir(), hash);
+
+        boolean recompile = shouldRecompile(entryDir);
+        File classesDir = recompile ? null : compiledScripts.get(scriptId, entryDir);
+        if (classesDir == null) {
+            classesDir = addToCache(cache, entryDir, recompile, source, classLoader, transformer, scriptBaseClass, verifier);
+            compiledScripts.put(scriptId, entryDir, classesDir);
+        }
+        markUsed(entryDir);
+        return classesDir;
+    }
+
     public void close() {
-        caches.stop();
+        synchronized (lock) {
+            if (cache != null) {
+                cache.close();
+                cache = null;
+            }
+        }
     }
 
-    private File classesDir(PersistentCache cache) {
-        return new File(cache.getBaseDir(), "classes");
+    private PersistentCache getCache() {
+        synchronized (lock) {
+            if (cache == null) {
+                cache = cacheRepository.cache("script-classes")
+                        .withDisplayName("script class cache")
+                        .withLockOptions(mode(FileLockManager.LockMode.None)) // Don't need to lock anything until we use the cache
+                        .open();
+                cleanUp(cache);
+            }
+            return cache;
+        }
     }
 
-    private class CacheInitializer implements Action<PersistentCache> {
-        private final Verifier verifier;
-        private final Class<? extends Script> scriptBaseClass;
-        private final ClassLoader classLoader;
-        private final Transformer transformer;
-        private final ScriptSource source;
-
-        private CacheInitializer(ScriptSource source, ClassLoader classLoader, Transformer transformer, Verifier verifier, Class<? extends Script> scriptBaseClass) {
-            this.source = source;
-            this.classLoader = classLoader;
-            this.transformer = transformer;
-            this.verifier = verifier;
-            this.scriptBaseClass = scriptBaseClass;
+    /**
+     * Scripts are recompiled at most once per build when the cache is invalid, that is, when requested on the command-line.
+     */
+    private boolean shouldRecompile(File entryDir) {
+        if (validator.isValid()) {
+            return false;
+        }
+        synchronized (lock) {
+            return recompiled.add(entryDir);
         }
+    }
 
-        public void execute(PersistentCache cache) {
-            File classesDir = classesDir(cache);
-            scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass, verifier);
+    /**
+     * Marks the given entry as used, once per build, so that it is not removed while it is still being used.
+     */
+    private void markUsed(File entryDir) {
+        synchronized (lock) {
+            if (!used.add(entryDir)) {
+                return;
+            }
         }
+        entryDir.setLastModified(System.currentTimeMillis());
     }
 
-    static class ProgressReportingInitializer implements Action<PersistentCache> {
-        private ProgressLoggerFactory progressLoggerFactory;
-        private Action<? super PersistentCache> delegate;
+    /**
+     * Removes the entries that have not been used for a while, the classes directories that have been superseded for a while, and the temporary
+     * directories of compilations that did not complete. Entries and directories that are not old enough may still be in use by another process.
+     */
+    private static void cleanUp(PersistentCache cache) {
+        final File baseDir = cache.getBaseDir();
+        final File marker = new File(baseDir, CLEANUP_MARKER);
+        if (!isCleanUpRequired(marker)) {
+            return;
+        }
+        cache.useCache("Clean up script class cache", new Runnable() {
+            public void run() {
+                if (!isCleanUpRequired(marker)) {
+                    // Has been done by another process meanwhile
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                File[] dirs = baseDir.listFiles();
+                if (dirs != null) {
+                    for (File dir : dirs) {
+                        if (!dir.isDirectory()) {
+                            continue;
+                        }
+                        if (dir.getName().endsWith(TEMP_DIR_SUFFIX)) {
+                            if (dir.lastModified() < now - STALE_TEMP_DIR_AGE) {
+                                GFileUtils.deleteQuietly(dir);
+                            }
+                        } else if (dir.lastModified() < now - UNUSED_ENTRY_AGE) {
+                            GFileUtils.deleteQuietly(dir);
+                        } else {
+                            removeSupersededClassesDirs(dir, now);
+                        }
+                    }
+                }
+                GFileUtils.touch(marker);
+            }
+        });
+    }
+
+    private static boolean isCleanUpRequired(File marker) {
+        return !marker.isFile() || marker.lastModified() < System.currentTimeMillis() - CLEANUP_INTERVAL;
+    }
 
-        public ProgressReportingInitializer(ProgressLoggerFactory progressLoggerFactory, Action<PersistentCache> delegate) {
-            this.progressLoggerFactory = progressLoggerFactory;
-            this.delegate = delegate;
+    private static void removeSupersededClassesDirs(File entryDir, long now) {
+        File current = findClassesDir(entryDir);
+        if (current == null || current.lastModified() >= now - SUPERSEDED_CLASSES_DIR_AGE) {
+            return;
+        }
+        long entryLastUsed = entryDir.lastModified();
+        File[] classesDirs = entryDir.listFiles();
+        if (classesDirs == null) {
+            return;
         }
+        for (File classesDir : classesDirs) {
+            if (!classesDir.equals(current)) {
+                GFileUtils.deleteQuietly(classesDir);
+            }
+        }
+        // Removing the directories changes the modification time of the entry, which is used to record when the entry was last used
+        entryDir.setLastModified(entryLastUsed);
+    }
 
-        public void execute(PersistentCache cache) {
-            ProgressLogger op = progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler.class)
-                    .start("Compile script into cache", "Compiling script into cache");
+    /**
+     * Returns the subdirectory of the given entry that holds the current classes of the script, or null when the script has not been compiled yet.
+     */
+    private static File findClassesDir(File entryDir) {
+        String[] names = entryDir.list();
+        if (names == null) {
+            return null;
+        }
+        int current = 0;
+        for (String name : names) {
             try {
-                delegate.execute(cache);
-            } finally {
-                op.completed();
+                current = Math.max(current, Integer.parseInt(name));
+            } catch (NumberFormatException e) {
+                // Not a classes directory
             }
         }
+        return current == 0 ? null : new File(entryDir, String.valueOf(current));
+    }
+
+    private File addToCache(PersistentCache cache, final File entryDir, final boolean recompile, ScriptSource source, ClassLoader classLoader, Transformer transformer,
+                            Class<? extends Script> scriptBaseClass, Verifier verifier) {
+        if (!recompile) {
+            File classesDir = cache.useCache("Locate compiled script classes", new Factory<File>() {
+                public File create() {
+                    return findClassesDir(entryDir);
+                }
+            });
+            if (classesDir != null) {
+                return classesDir;
+            }
+        }
+
+        // Compile without holding the lock, so that other scripts can be loaded or compiled meanwhile
+        final File tmpDir = new File(cache.getBaseDir(), String.format("%s-%s%s", entryDir.getName(), UUID.randomUUID(), TEMP_DIR_SUFFIX));
+        ProgressLogger op = progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler.class)
+                .start("Compile script into cache", "Compiling script into cache");
+        try {
+            scriptCompilationHandler.compileToDir(source, classLoader, tmpDir, transformer, scriptBaseClass, verifier);
+        } finally {
+            op.completed();
+        }
+
+        return cache.useCache("Add compiled script classes", new Factory<File>() {
+            public File create() {
+                File current = findClassesDir(entryDir);
+                if (current != null && !recompile) {
+                    // Has been added by another thread or process meanwhile
+                    GFileUtils.deleteDirectory(tmpDir);
+                    return current;
+                }
+                // Never replace the current classes, as another process may still be loading classes from them
+                int version = current == null ? 1 : Integer.parseInt(current.getName()) + 1;
+                File classesDir = new File(entryDir, String.valueOf(version));
+                GFileUtils.mkdirs(entryDir);
+                GFileUtils.moveDirectory(tmpDir, classesDir);
+                return classesDir;
+            }
+        });
     }
 }
@@ -200,7 +200,7 @@ public class BuildScopeServices extends DefaultServiceRegistry {
 
     protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler(
             CacheRepository cacheRepository, EmptyScriptGenerator emptyScriptGenerator, final StartParameter startParameter,
-            ProgressLoggerFactory progressLoggerFactory, ClassLoaderCache classLoaderCache) {
+            ProgressLoggerFactory progressLoggerFactory, ClassLoaderCache classLoaderCache, CompiledScriptIndex compiledScriptIndex) {
         CacheValidator scriptCacheInvalidator = new CacheValidator() {
             public boolean isValid() {
                 return !startParameter.isRecompileScripts();
@@ -210,7 +210,8 @@ public class BuildScopeServices extends DefaultServiceRegistry {
                 cacheRepository,
                 scriptCacheInvalidator,
                 new DefaultScriptCompilationHandler(emptyScriptGenerator, classLoaderCache),
-                progressLoggerFactory
+                progressLoggerFactory,
+                compiledScriptIndex
         );
     }
 
@@ -282,8 +283,15 @@ public class BuildScopeServices extends DefaultServiceRegistry {
         return new TaskPathProjectEvaluator(cancellationToken);
     }
 
-    protected BuildConfigurer createBuildConfigurer(ProjectConfigurer projectConfigurer) {
-        return new DefaultBuildConfigurer(projectConfigurer);
+    protected BuildConfigurer createBuildConfigurer(ProjectConfigurer projectConfigurer, StartParameter startParameter) {
+        BuildScriptPrecompiler scriptPrecompiler = new BuildScriptPrecompiler(
+                get(FileCacheBackedScriptClassCompiler.class),
+                get(ImportsReader.class),
+                get(DocumentationRegistry.class),
+                get(ExecutorFactory.class),
+                startParameter.getParallelThreadCount()
+        );
+        return new DefaultBuildConfigurer(projectConfigurer, scriptPrecompiler);
     }
 
     protected ProjectAccessListener createProjectAccessListener() {
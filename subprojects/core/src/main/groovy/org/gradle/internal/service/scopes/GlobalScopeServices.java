@@ -29,6 +29,7 @@ import org.gradle.cache.internal.*;
 import org.gradle.cache.internal.locklistener.DefaultFileLockContentionHandler;
 import org.gradle.cache.internal.locklistener.FileLockContentionHandler;
 import org.gradle.cli.CommandLineConverter;
+import org.gradle.groovy.scripts.internal.CompiledScriptIndex;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
 import org.gradle.initialization.DefaultCommandLineConverter;
@@ -177,4 +178,8 @@ public class GlobalScopeServices {
         return new ClassLoaderCacheFactory();
     }
 
+    CompiledScriptIndex createCompiledScriptIndex() {
+        return new CompiledScriptIndex();
+    }
+
 }
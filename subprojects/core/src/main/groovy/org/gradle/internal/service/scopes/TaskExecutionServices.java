@@ -21,7 +21,7 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Hashers;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -58,11 +58,11 @@ public class TaskExecutionServices {
         } else {
             decorator = new NoOpDecorator();
         }
-        return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
+        return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator, Boolean.getBoolean(DefaultTaskArtifactStateCacheAccess.LOG_STRUCTURED_CACHES_PROPERTY));
     }
 
-    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess);
+    FileSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, ExecutorFactory executorFactory) {
+        return new CachingFileSnapshotter(Hashers.forFileSnapshots(), cacheAccess, executorFactory, Runtime.getRuntime().availableProcessors());
     }
 
     TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileSnapshotter fileSnapshotter) {
@@ -92,6 +92,11 @@ public class TaskExecutionServices {
     }
 
     TaskPlanExecutor createTaskExecutorFactory(StartParameter startParameter, ExecutorFactory executorFactory) {
-        return new TaskPlanExecutorFactory(startParameter.getParallelThreadCount(), executorFactory).create();
+        return new TaskPlanExecutorFactory(
+                startParameter.getParallelThreadCount(),
+                Boolean.getBoolean(TaskPlanExecutorFactory.PRIORITISE_CRITICAL_PATH_PROPERTY),
+                Boolean.getBoolean(TaskPlanExecutorFactory.INTRA_PROJECT_PARALLELISM_PROPERTY),
+                executorFactory
+        ).create();
     }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.Factory
+import spock.lang.Specification
+
+class CacheBackedTaskHistoryRepositoryTest extends Specification {
+    final TaskArtifactStateCacheAccess cacheAccess = Mock()
+    final FileSnapshotRepository snapshotRepository = Mock()
+    final PersistentIndexedCache<Object, Object> indexedCache = Mock()
+
+    def setup() {
+        _ * cacheAccess.createCache("taskArtifacts", _, _) >> indexedCache
+        _ * cacheAccess.useCache(_, _ as Factory) >> { String name, Factory action -> action.create() }
+        _ * cacheAccess.useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+    }
+
+    def "writes history when stopped"() {
+        def repository = new CacheBackedTaskHistoryRepository(cacheAccess, snapshotRepository)
+        def history = repository.getHistory(task(":a"))
+
+        when:
+        history.update()
+
+        then:
+        0 * indexedCache.put(_, _)
+
+        when:
+        repository.stop()
+
+        then:
+        1 * indexedCache.put(":a", _)
+    }
+
+    def "writes history in batches"() {
+        def repository = new CacheBackedTaskHistoryRepository(cacheAccess, snapshotRepository, 2)
+        def history1 = repository.getHistory(task(":a"))
+        def history2 = repository.getHistory(task(":b"))
+        def history3 = repository.getHistory(task(":c"))
+
+        when:
+        history1.update()
+
+        then:
+        0 * indexedCache.put(_, _)
+
+        when:
+        history2.update()
+
+        then:
+        1 * indexedCache.put(":a", _)
+        1 * indexedCache.put(":b", _)
+
+        when:
+        history3.update()
+        repository.stop()
+
+        then:
+        1 * indexedCache.put(":c", _)
+        0 * indexedCache.put(_, _)
+    }
+
+    def "writes pending history of a task before loading its history"() {
+        def repository = new CacheBackedTaskHistoryRepository(cacheAccess, snapshotRepository)
+        def task = task(":a")
+        repository.getHistory(task).update()
+
+        when:
+        repository.getHistory(task)
+
+        then:
+        1 * indexedCache.put(":a", _)
+
+        then:
+        1 * indexedCache.get(":a")
+    }
+
+    def task(String path) {
+        def outputFiles = Stub(FileCollection) {
+            iterator() >> { [].iterator() }
+        }
+        def outputs = Stub(TaskOutputsInternal) {
+            getFiles() >> outputFiles
+        }
+        return Stub(TaskInternal) {
+            getPath() >> path
+            getOutputs() >> outputs
+        }
+    }
+}
@@ -18,6 +18,8 @@ package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.hash.Hasher
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -34,6 +36,7 @@ class CachingFileSnapshotterTest extends Specification {
 
     def setup() {
         file.write("some-content")
+        target.algorithm >> "MD5"
         1 * cacheAccess.createCache("fileHashes", _, _) >> cache
         hasher = new CachingFileSnapshotter(target, cacheAccess);
     }
@@ -64,7 +67,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, 1024, file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("MD5", hash, 1024, file.lastModified())
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -82,7 +85,7 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), 124)
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("MD5", hash, file.length(), 124)
         1 * target.hash(file) >> hash
         1 * cache.put(file, _) >> { File key, CachingFileSnapshotter.FileInfo fileInfo ->
             fileInfo.hash == hash
@@ -92,6 +95,20 @@ class CachingFileSnapshotterTest extends Specification {
         0 * _._
     }
 
+    def hashesFileWhenHashAlgorithmHasChanged() {
+        when:
+        def result = hasher.snapshot(file)
+
+        then:
+        result.hash == hash
+
+        and:
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("MURMUR3_128", "other".bytes, file.length(), file.lastModified())
+        1 * target.hash(file) >> hash
+        1 * cache.put(file, _)
+        0 * _._
+    }
+
     def doesNotHashFileWhenTimestampAndLengthHaveNotChanged() {
         when:
         def result = hasher.snapshot(file)
@@ -100,7 +117,85 @@ class CachingFileSnapshotterTest extends Specification {
         result.hash == hash
 
         and:
-        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("MD5", hash, file.length(), file.lastModified())
         0 * _._
     }
+
+    def snapshotsMultipleFilesHashingOnlyThoseThatHaveChanged() {
+        def changed = tmpDir.createFile("changed")
+        changed.write("changed")
+
+        when:
+        def result = hasher.snapshotAll([file, changed])
+
+        then:
+        result.collect { new String(it.hash) } == ["hash", "other"]
+
+        and:
+        1 * cache.get(file) >> new CachingFileSnapshotter.FileInfo("MD5", hash, file.length(), file.lastModified())
+        1 * cache.get(changed) >> new CachingFileSnapshotter.FileInfo("MD5", hash, 1024, changed.lastModified())
+        1 * target.hash(changed) >> "other".bytes
+        1 * cache.put(changed, _)
+        0 * _._
+    }
+
+    def snapshotsLargeBatchesOfFilesConcurrently() {
+        def executorFactory = new DefaultExecutorFactory()
+        def files = (1..500).collect { tmpDir.createFile("file$it") }
+        def hashingThreads = Collections.synchronizedSet(new HashSet<Thread>())
+        def cacheThreads = Collections.synchronizedSet(new HashSet<Thread>())
+        CachingFileSnapshotter concurrentHasher
+
+        when:
+        concurrentHasher = new CachingFileSnapshotter(target, cacheAccess, executorFactory, 4)
+        def result = concurrentHasher.snapshotAll(files)
+
+        then:
+        result.collect { new String(it.hash) } == files*.name
+
+        and:
+        1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        500 * cache.get(_) >> {
+            cacheThreads << Thread.currentThread()
+            return null
+        }
+        500 * target.hash(_) >> { File f ->
+            hashingThreads << Thread.currentThread()
+            return f.name.bytes
+        }
+        500 * cache.put(_, _) >> {
+            cacheThreads << Thread.currentThread()
+        }
+
+        and:
+        hashingThreads.size() > 1
+        hashingThreads.contains(Thread.currentThread())
+        cacheThreads == [Thread.currentThread()] as Set
+
+        cleanup:
+        concurrentHasher.stop()
+        executorFactory.stop()
+    }
+
+    def snapshotsSmallBatchesOfFilesOnTheCallingThread() {
+        def executorFactory = Mock(ExecutorFactory)
+        def files = (1..10).collect { tmpDir.createFile("file$it") }
+        def hashingThreads = Collections.synchronizedSet(new HashSet<Thread>())
+        CachingFileSnapshotter concurrentHasher
+
+        when:
+        concurrentHasher = new CachingFileSnapshotter(target, cacheAccess, executorFactory, 4)
+        concurrentHasher.snapshotAll(files)
+
+        then:
+        1 * cacheAccess.createCache("fileHashes", _, _) >> cache
+        10 * target.hash(_) >> { File f ->
+            hashingThreads << Thread.currentThread()
+            return f.name.bytes
+        }
+        0 * executorFactory._
+
+        and:
+        hashingThreads == [Thread.currentThread()] as Set
+    }
 }
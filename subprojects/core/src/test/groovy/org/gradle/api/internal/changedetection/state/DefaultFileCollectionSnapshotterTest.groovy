@@ -34,9 +34,11 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
 
     def setup() {
-        fileSnapshotter.snapshot(_) >> { File file ->
-            return Stub(FileSnapshot) {
-                getHash() >> HashUtil.sha1(file).asByteArray()
+        fileSnapshotter.snapshotAll(_) >> { List<File> files ->
+            return files.collect { File file ->
+                Stub(FileSnapshot) {
+                    getHash() >> HashUtil.sha1(file).asByteArray()
+                }
             }
         }
         cacheAccess.useCache(_, _) >> { String name, Runnable action ->
@@ -17,15 +17,18 @@
 package org.gradle.api.internal.changedetection.state
 
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
+import org.gradle.messaging.serialize.BaseSerializerFactory
+import org.gradle.messaging.serialize.Serializer
 import spock.lang.Specification
 
 class InMemoryTaskArtifactCacheTest extends Specification {
     def cacheFactory = new InMemoryTaskArtifactCache()
     def target = Mock(MultiProcessSafePersistentIndexedCache)
+    def serializer = BaseSerializerFactory.STRING_SERIALIZER
 
     def "caches result from backing cache"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", serializer, target)
 
         when:
         def result = cache.get("key")
@@ -49,7 +52,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches null result from backing cache"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", serializer, target)
 
         when:
         def result = cache.get("key")
@@ -73,7 +76,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches result of putting item"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", serializer, target)
 
         when:
         def result = cache.get("key")
@@ -104,7 +107,7 @@ class InMemoryTaskArtifactCacheTest extends Specification {
 
     def "caches result of removing item"() {
         given:
-        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", serializer, target)
 
         when:
         def result = cache.get("key")
@@ -133,4 +136,69 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "keeps cached entries within budget"() {
+        given:
+        def budget = 1024 * 1024
+        def cacheFactory = new InMemoryTaskArtifactCache(budget)
+        def target = [get: { key -> "value of ${key}".toString() }, put: { key, value -> }] as MultiProcessSafePersistentIndexedCache
+        def cache = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", serializer, target)
+        def entries = 1000000
+
+        when:
+        entries.times { cache.get(it as Long) }
+
+        then:
+        def stats = cacheFactory.stats
+        stats.missCount() == entries
+        // the fileHashes cache may use a quarter of the budget, and no entry weighs less than the per-entry overhead
+        entries - stats.evictionCount() <= budget / 4 / 64
+    }
+
+    def "weighs file snapshots without serializing them"() {
+        given:
+        def snapshotSerializer = Mock(Serializer)
+        def snapshots = [:]
+        100.times { snapshots["file${it}".toString()] = new DefaultFileCollectionSnapshotter.MissingFileSnapshot() }
+        def snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", snapshotSerializer, target)
+
+        when:
+        cache.put(1L, snapshot)
+
+        then:
+        cache.get(1L) == snapshot
+        0 * snapshotSerializer._
+    }
+
+    def "evicts file snapshots that are too large for the budget"() {
+        given:
+        def cacheFactory = new InMemoryTaskArtifactCache(100 * 1024)
+        def snapshots = [:]
+        1000.times { snapshots["file${it}".toString()] = new DefaultFileCollectionSnapshotter.MissingFileSnapshot() }
+        def snapshot = new DefaultFileCollectionSnapshotter.FileCollectionSnapshotImpl(snapshots)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", Mock(Serializer), target)
+
+        when:
+        cache.put(1L, snapshot)
+        cache.get(1L)
+
+        then:
+        1 * target.get(1L) >> snapshot
+    }
+
+    def "reports statistics for all caches"() {
+        given:
+        def snapshots = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", serializer, target)
+        def hashes = cacheFactory.decorate("path/fileHashes.bin", "fileHashes", serializer, target)
+        target.get(_) >> "result"
+
+        when:
+        snapshots.get("a")
+        snapshots.get("a")
+        hashes.get("b")
+
+        then:
+        cacheFactory.stats.hitCount() == 1
+        cacheFactory.stats.missCount() == 2
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import org.gradle.api.GradleException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class HashersTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "creates hasher for algorithm"() {
+        expect:
+        Hashers.forAlgorithm(algorithm).class == type
+
+        where:
+        algorithm | type
+        "md5"     | DefaultHasher
+        "MD5"     | DefaultHasher
+        "murmur3" | Murmur3Hasher
+    }
+
+    def "fails for unknown algorithm"() {
+        when:
+        Hashers.forAlgorithm("crc32")
+
+        then:
+        GradleException e = thrown()
+        e.message == "Unknown file hash algorithm 'crc32'. Supported algorithms are 'md5' and 'murmur3'."
+    }
+
+    def "murmur3 hasher creates 128 bit hash of file content"() {
+        def file = tmpDir.createFile("file")
+        def other = tmpDir.createFile("other")
+        def same = tmpDir.createFile("same")
+        file.text = "some content"
+        other.text = "other content"
+        same.text = "some content"
+        def hasher = new Murmur3Hasher()
+
+        expect:
+        hasher.hash(file).length == 16
+        hasher.hash(file) as List == hasher.hash(same) as List
+        hasher.hash(file) as List != hasher.hash(other) as List
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.messaging.serialize.BaseSerializerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def cacheFile = tmpDir.file("cache.log")
+    def indexFile = tmpDir.file("cache.log.index")
+    def cache = newCache()
+
+    def cleanup() {
+        cache.close()
+    }
+
+    def "returns null for entry that does not exist"() {
+        expect:
+        cache.get("unknown") == null
+    }
+
+    def "persists added, replaced and removed entries"() {
+        when:
+        cache.put("a", "1")
+        cache.put("b", "2")
+        cache.put("c", "3")
+        cache.put("b", "new 2")
+        cache.remove("c")
+        cache.remove("unknown")
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "new 2"
+        cache.get("c") == null
+
+        when:
+        reopen()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == "new 2"
+        cache.get("c") == null
+    }
+
+    def "discards incompletely written entry"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        def length = cacheFile.length()
+        cache = newCache()
+        cache.put("b", "2")
+        cache.close()
+
+        when:
+        truncate(cacheFile, cacheFile.length() - 1)
+        cache = newCache()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("b") == null
+        cacheFile.length() == length
+
+        when:
+        cache.put("c", "3")
+        reopen()
+
+        then:
+        cache.get("a") == "1"
+        cache.get("c") == "3"
+    }
+
+    def "compacts log when most entries have been superseded"() {
+        given:
+        def value = "x" * 1000
+        2000.times { cache.put("key", value + it) }
+        cache.put("other", "value")
+        def length = cacheFile.length()
+
+        when:
+        reopen()
+
+        then:
+        cacheFile.length() < length / 100
+        cache.get("key") == value + 1999
+        cache.get("other") == "value"
+        !tmpDir.file("cache.log.compacting").exists()
+
+        when:
+        reopen()
+
+        then:
+        indexFile.exists()
+        cache.get("key") == value + 1999
+        cache.get("other") == "value"
+    }
+
+    def "writes index file on close and removes it when the log is changed"() {
+        given:
+        cache.put("a", "1")
+
+        when:
+        reopen()
+
+        then:
+        indexFile.exists()
+        cache.get("a") == "1"
+
+        when:
+        cache.put("b", "2")
+
+        then:
+        !indexFile.exists()
+
+        when:
+        reopen()
+
+        then:
+        indexFile.exists()
+        cache.get("a") == "1"
+        cache.get("b") == "2"
+    }
+
+    def "scans log when cache was not closed"() {
+        given:
+        cache.put("a", "1")
+        reopen()
+        cache.put("b", "2")
+        cache.remove("a")
+        def notClosed = cache
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == null
+        cache.get("b") == "2"
+
+        cleanup:
+        notClosed.close()
+    }
+
+    def "scans log when index file is corrupt"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        indexFile.bytes = indexFile.bytes.reverse()
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == "1"
+    }
+
+    def "discards unfinished compaction"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        tmpDir.file("cache.log.compacting").text = "broken"
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == "1"
+        !tmpDir.file("cache.log.compacting").exists()
+    }
+
+    def "uses compacted log when it was not moved into place"() {
+        given:
+        cache.put("a", "1")
+        cache.close()
+        cacheFile.renameTo(tmpDir.file("cache.log.compacting"))
+
+        when:
+        cache = newCache()
+
+        then:
+        cache.get("a") == "1"
+        !tmpDir.file("cache.log.compacting").exists()
+    }
+
+    private void reopen() {
+        cache.close()
+        cache = newCache()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> newCache() {
+        new LogStructuredPersistentIndexedCache<String, String>(cacheFile, BaseSerializerFactory.STRING_SERIALIZER, BaseSerializerFactory.STRING_SERIALIZER)
+    }
+
+    private static void truncate(File file, long length) {
+        def randomAccessFile = new RandomAccessFile(file, "rw")
+        try {
+            randomAccessFile.setLength(length)
+        } finally {
+            randomAccessFile.close()
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration
+
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.ConfigurationContainer
+import org.gradle.api.artifacts.DependencySet
+import org.gradle.api.initialization.dsl.ScriptHandler
+import org.gradle.api.internal.DocumentationRegistry
+import org.gradle.api.internal.initialization.ClassLoaderScope
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectScript
+import org.gradle.groovy.scripts.CachingScriptSource
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.groovy.scripts.StringScriptSource
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.model.dsl.internal.transform.ClosureCreationInterceptingVerifier
+import spock.lang.Specification
+
+class BuildScriptPrecompilerTest extends Specification {
+    def scriptCompiler = Mock(FileCacheBackedScriptClassCompiler)
+    def importsReader = Mock(ImportsReader)
+    def classLoader = Mock(ClassLoader)
+    def executorFactory = new DefaultExecutorFactory()
+    def precompiler = new BuildScriptPrecompiler(scriptCompiler, importsReader, new DocumentationRegistry(), executorFactory, 2)
+
+    def setup() {
+        importsReader.withImports(_) >> { ScriptSource source -> source }
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "compiles both passes of the build scripts of all projects"() {
+        def rootSource = new StringScriptSource("root", "task a")
+        def childSource = new StringScriptSource("child", "task b")
+        def child = project(childSource)
+        def root = project(rootSource, child)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(rootSource), classLoader, _, ProjectScript, { !(it instanceof ClosureCreationInterceptingVerifier) })
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(rootSource), classLoader, _, ProjectScript, { it instanceof ClosureCreationInterceptingVerifier })
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(childSource), classLoader, _, ProjectScript, { !(it instanceof ClosureCreationInterceptingVerifier) })
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(childSource), classLoader, _, ProjectScript, { it instanceof ClosureCreationInterceptingVerifier })
+        0 * scriptCompiler._
+    }
+
+    def "compiles only the classpath pass of a script that declares a classpath and nothing for its descendants"() {
+        def rootSource = new StringScriptSource("root", "buildscript { }")
+        def child = project(new StringScriptSource("child", "task b"))
+        def root = project(rootSource, child)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(rootSource), classLoader, _, ProjectScript, { !(it instanceof ClosureCreationInterceptingVerifier) })
+        0 * scriptCompiler._
+    }
+
+    def "does not compile the main pass of a script whose classpath is added by an init script"() {
+        def rootSource = new StringScriptSource("root", "task a")
+        def root = project(rootSource, [], false)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        1 * scriptCompiler.compileIntoCache(new CachingScriptSource(rootSource), classLoader, _, ProjectScript, { !(it instanceof ClosureCreationInterceptingVerifier) })
+        0 * scriptCompiler._
+    }
+
+    def "does not compile empty scripts"() {
+        def root = project(new StringScriptSource("root", "  \n"))
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        0 * scriptCompiler._
+    }
+
+    def "ignores compilation failures"() {
+        def rootSource = new StringScriptSource("root", "task a")
+        def root = project(rootSource)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        2 * scriptCompiler.compileIntoCache(new CachingScriptSource(rootSource), classLoader, _, ProjectScript, _) >> { throw new RuntimeException("broken") }
+        noExceptionThrown()
+    }
+
+    def project(ScriptSource source, ProjectInternal... children) {
+        return project(source, children as List, true)
+    }
+
+    def project(ScriptSource source, List<ProjectInternal> children, boolean emptyClasspath) {
+        def project = Mock(ProjectInternal)
+        def baseScope = Mock(ClassLoaderScope)
+        def buildscript = Mock(ScriptHandler)
+        def configurations = Mock(ConfigurationContainer)
+        def configuration = Mock(Configuration)
+        def dependencies = Mock(DependencySet)
+        _ * project.buildScriptSource >> source
+        _ * project.baseClassLoaderScope >> baseScope
+        _ * baseScope.exportClassLoader >> classLoader
+        _ * project.childProjects >> children.collectEntries { [it.toString(), it] }
+        _ * project.buildscript >> buildscript
+        _ * buildscript.configurations >> configurations
+        _ * configurations.getByName(ScriptHandler.CLASSPATH_CONFIGURATION) >> configuration
+        _ * configuration.dependencies >> dependencies
+        _ * dependencies.empty >> emptyClasspath
+        return project
+    }
+}
@@ -19,9 +19,12 @@ import org.gradle.StartParameter
 import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.project.ProjectInternal
 import org.gradle.execution.ProjectConfigurer
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
 import spock.lang.Specification
 
 class DefaultBuildConfigurerTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
     private startParameter = Mock(StartParameter)
     private gradle = Mock(GradleInternal)
     private rootProject = Mock(ProjectInternal)
@@ -49,4 +52,45 @@ class DefaultBuildConfigurerTest extends Specification {
         startParameter.isConfigureOnDemand() >> true
         1 * projectConfigurer.configure(rootProject)
     }
+
+    def "compiles build scripts before configuring build for standard mode"() {
+        def scriptPrecompiler = Mock(BuildScriptPrecompiler)
+        def configurer = new DefaultBuildConfigurer(projectConfigurer, scriptPrecompiler)
+        System.setProperty(BuildScriptPrecompiler.PRECOMPILE_SCRIPTS_PROPERTY, "true")
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * scriptPrecompiler.precompile(rootProject)
+
+        then:
+        1 * projectConfigurer.configureHierarchy(rootProject)
+    }
+
+    def "does not compile build scripts ahead of time when not enabled"() {
+        def scriptPrecompiler = Mock(BuildScriptPrecompiler)
+        def configurer = new DefaultBuildConfigurer(projectConfigurer, scriptPrecompiler)
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        1 * projectConfigurer.configureHierarchy(rootProject)
+        0 * scriptPrecompiler._
+    }
+
+    def "does not compile build scripts ahead of time for on demand mode"() {
+        def scriptPrecompiler = Mock(BuildScriptPrecompiler)
+        def configurer = new DefaultBuildConfigurer(projectConfigurer, scriptPrecompiler)
+        System.setProperty(BuildScriptPrecompiler.PRECOMPILE_SCRIPTS_PROPERTY, "true")
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        startParameter.isConfigureOnDemand() >> true
+        1 * projectConfigurer.configure(rootProject)
+        0 * scriptPrecompiler._
+    }
 }
@@ -833,6 +833,38 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         executes(c)
     }
 
+    def "provides tasks heading the longest chain of waiting tasks first when critical path is prioritised"() {
+        given:
+        Task a = task("a")
+        Task b = task("b")
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", mustRunAfter: [c])
+        addToGraphAndPopulate([a, c, d])
+
+        when:
+        executionPlan.prioritiseCriticalPath()
+
+        then:
+        executes(a, b, c, d)
+        executedTasks == [b, c, a, d]
+    }
+
+    def "keeps shouldRunAfter ordering when critical path is prioritised"() {
+        given:
+        Task a = task("a")
+        Task b = task("b", shouldRunAfter: [a])
+        Task c = task("c", dependsOn: [b])
+        Task d = task("d", dependsOn: [c])
+        addToGraphAndPopulate([a, d])
+
+        when:
+        executionPlan.prioritiseCriticalPath()
+
+        then:
+        executes(a, b, c, d)
+        executedTasks == [a, b, c, d]
+    }
+
     def "one parallel task per project is allowed"() {
         given:
         //2 projects, 2 tasks each
@@ -864,6 +896,131 @@ public class DefaultTaskExecutionPlanTest extends Specification {
         t3.task.project != t4.task.project
     }
 
+    def "tasks of the same project with separate outputs run in parallel when intra project parallelism is allowed"() {
+        given:
+        def foo = root.task("foo")
+        foo.outputs.file("build/foo")
+        def bar = root.task("bar")
+        bar.outputs.file("build/bar")
+
+        addToGraphAndPopulate([foo, bar])
+        executionPlan.allowIntraProjectParallelism()
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        [t1.task, t2.task] == [bar, foo]
+    }
+
+    def "tasks with overlapping outputs do not run in parallel when intra project parallelism is allowed"() {
+        given:
+        def foo = root.task("foo")
+        foo.outputs.dir("build/classes")
+        def bar = root.task("bar")
+        bar.outputs.file("build/classes/Bar.class")
+        def baz = root.task("baz")
+        baz.outputs.file("build/baz")
+
+        addToGraphAndPopulate([foo, bar, baz])
+        executionPlan.allowIntraProjectParallelism()
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == bar
+        t2.task == baz
+
+        when:
+        executionPlan.taskComplete(t1)
+        def t3 = executionPlan.getTaskToExecute()
+
+        then:
+        t3.task == foo
+    }
+
+    def "tasks without declared outputs run exclusively within their project when intra project parallelism is allowed"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def foo = projectA.task("foo")
+        def bar = projectA.task("bar")
+        bar.outputs.file("build/bar")
+        def other = root.task("other")
+
+        addToGraphAndPopulate([foo, bar, other])
+        executionPlan.allowIntraProjectParallelism()
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == other
+        t2.task == bar
+
+        when:
+        executionPlan.taskComplete(t2)
+        def t3 = executionPlan.getTaskToExecute()
+
+        then:
+        t3.task == foo
+    }
+
+    def "resolves task outputs without holding the lock of the plan when intra project parallelism is allowed"() {
+        given:
+        def lockAvailable = null
+        def foo = root.task("foo")
+        foo.outputs.file {
+            def thread = Thread.start { executionPlan.allowIntraProjectParallelism() }
+            thread.join(5000)
+            lockAvailable = !thread.alive
+            return "build/foo"
+        }
+
+        addToGraphAndPopulate([foo])
+        executionPlan.allowIntraProjectParallelism()
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+
+        then:
+        t1.task == foo
+        lockAvailable
+    }
+
+    def "does not finish until tasks that are executing have completed"() {
+        given:
+        def projectA = createChildProject(root, "a")
+        def projectB = createChildProject(root, "b")
+
+        def fooA = projectA.task("foo")
+        def fooB = projectB.task("foo")
+        def barB = projectB.task("bar").dependsOn(fooA)
+
+        addToGraphAndPopulate([fooA, fooB, barB])
+
+        when:
+        def t1 = executionPlan.getTaskToExecute()
+        def t2 = executionPlan.getTaskToExecute()
+        executionPlan.taskComplete(t2)
+
+        then:
+        t1.task == fooA
+        t2.task == fooB
+
+        when:
+        executionPlan.taskComplete(t1)
+        def t3 = executionPlan.getTaskToExecute()
+        executionPlan.taskComplete(t3)
+
+        then:
+        t3.task == barB
+        executionPlan.getTaskToExecute() == null
+    }
+
     void executes(Task... expectedTasks) {
         assert executionPlan.tasks == expectedTasks as List
         assert expectedTasks == expectedTasks as List
@@ -43,4 +43,18 @@ public class TaskPlanExecutorFactoryTest extends Specification {
         where:
         parallelExecuterCount << [-1, 1, 3]
     }
+
+    def "creates a parallel executor with scheduling options"() {
+        when:
+        def factory = new TaskPlanExecutorFactory(3, prioritiseCriticalPath, intraProjectParallelism, executorFactory)
+
+        then:
+        factory.create().class == ParallelTaskPlanExecutor
+
+        where:
+        prioritiseCriticalPath | intraProjectParallelism
+        true                   | false
+        false                  | true
+        true                   | true
+    }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.groovy.scripts.internal
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class CompiledScriptIndexTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    def index = new CompiledScriptIndex()
+
+    def "returns classes directory of script"() {
+        def entryDir = tmpDir.createDir("abc")
+        def classesDir = tmpDir.createDir("abc/1")
+
+        when:
+        index.put("script", entryDir, classesDir)
+
+        then:
+        index.get("script", entryDir) == classesDir
+        index.get("other", entryDir) == null
+    }
+
+    def "drops earlier version of script"() {
+        def entryDir = tmpDir.createDir("abc")
+        def newEntryDir = tmpDir.createDir("def")
+        def newClassesDir = tmpDir.createDir("def/1")
+
+        given:
+        index.put("script", entryDir, tmpDir.createDir("abc/1"))
+
+        when:
+        index.put("script", newEntryDir, newClassesDir)
+
+        then:
+        index.get("script", entryDir) == null
+        index.get("script", newEntryDir) == newClassesDir
+    }
+
+    def "forgets classes directory that has been removed"() {
+        def entryDir = tmpDir.createDir("abc")
+        def classesDir = tmpDir.createDir("abc/1")
+
+        given:
+        index.put("script", entryDir, classesDir)
+        classesDir.deleteDir()
+
+        expect:
+        index.get("script", entryDir) == null
+    }
+}
@@ -16,8 +16,6 @@
 package org.gradle.groovy.scripts.internal
 
 import org.codehaus.groovy.classgen.Verifier
-import org.gradle.api.Action
-import org.gradle.internal.resource.Resource
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.CacheValidator
@@ -25,11 +23,18 @@ import org.gradle.cache.PersistentCache
 import org.gradle.groovy.scripts.Script
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.Transformer
+import org.gradle.internal.Factory
+import org.gradle.internal.resource.Resource
 import org.gradle.logging.ProgressLogger
 import org.gradle.logging.ProgressLoggerFactory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.TimeUnit
+
 class FileCacheBackedScriptClassCompilerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
     final ScriptCompilationHandler scriptCompilationHandler = Mock()
     final CacheRepository cacheRepository = Mock()
     final CacheBuilder cacheBuilder = Mock()
@@ -38,100 +43,238 @@ class FileCacheBackedScriptClassCompilerTest extends Specification {
     final ScriptSource source = Mock()
     final ClassLoader classLoader = Mock()
     final Transformer transformer = Mock()
-    final File cacheDir = new File("base-dir")
-    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, Stub(ProgressLoggerFactory))
-    private Verifier verifier = new Verifier()
+    final ProgressLoggerFactory progressLoggerFactory = Mock()
+    final ProgressLogger progressLogger = Mock()
+    final CompiledScriptIndex index = new CompiledScriptIndex()
+    final FileCacheBackedScriptClassCompiler compiler = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, progressLoggerFactory, index)
+    final Verifier verifier = new Verifier()
+    File cacheDir
 
     def setup() {
+        cacheDir = tmpDir.createDir("cache")
         Resource resource = Mock()
         _ * source.resource >> resource
         _ * resource.text >> 'this is the script'
         _ * source.className >> 'ScriptClassName'
-        _ * source.fileName >> 'ScriptFileName'
         _ * transformer.id >> 'TransformerId'
+        _ * cacheRepository.cache("script-classes") >> cacheBuilder
+        _ * cacheBuilder.withDisplayName(!null) >> cacheBuilder
+        _ * cacheBuilder.withLockOptions(!null) >> cacheBuilder
+        _ * cacheBuilder.open() >> cache
         _ * cache.baseDir >> cacheDir
+        _ * cache.useCache(!null, _ as Factory) >> { args -> args[1].create() }
+        _ * cache.useCache(!null, _ as Runnable) >> { args -> args[1].run() }
+        _ * progressLoggerFactory.newOperation(FileCacheBackedScriptClassCompiler) >> progressLogger
+        _ * progressLogger.start(_, _) >> progressLogger
+    }
+
+    def "compiles script into cache and loads classes from there"() {
+        when:
+        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        result == Script
         _ * validator.isValid() >> true
+        1 * scriptCompilationHandler.compileToDir(source, classLoader, { it.parentFile == cacheDir }, transformer, Script, verifier) >> { args -> args[2].mkdirs() }
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, { it.parentFile.parentFile == cacheDir && it.name == "1" && it.directory }, Script) >> Script
+        0 * scriptCompilationHandler._
+
+        and:
+        cacheDir.listFiles().findAll { it.directory }.size() == 1
     }
 
-    def "loads classes from cache directory"() {
+    def "loads classes of script that is already in cache"() {
+        def otherBuild = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, progressLoggerFactory, new CompiledScriptIndex())
+
+        given:
+        validator.isValid() >> true
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+        otherBuild.compile(source, classLoader, transformer, Script, verifier)
+
         when:
         def result = compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> { args ->
-            assert args[0].get('source.filename') == 'ScriptFileName'
-            assert args[0].containsKey('source.hash')
-            return cacheBuilder
-        }
-        1 * cacheBuilder.withInitializer(!null) >> cacheBuilder
-        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        1 * cacheBuilder.withValidator(!null) >> cacheBuilder
-        1 * cacheBuilder.open() >> cache
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * cache.useCache("Locate compiled script classes", _ as Factory) >> { args -> args[1].create() }
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, { it.parentFile.parentFile == cacheDir && it.name == "1" }, Script) >> Script
         0 * scriptCompilationHandler._
+        0 * progressLoggerFactory._
     }
 
-    def "passes CacheValidator to cacheBuilder"() {
-        setup:
-        cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        cacheBuilder.withProperties(!null) >> cacheBuilder
-        cacheBuilder.withInitializer(!null) >> cacheBuilder
-        cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        cacheBuilder.open() >> cache
-        scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+    def "does not look in cache for script compiled earlier by this process"() {
+        def earlierBuild = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, progressLoggerFactory, index)
+
+        given:
+        validator.isValid() >> true
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+        earlierBuild.compile(source, classLoader, transformer, Script, verifier)
 
         when:
+        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        result == Script
+        0 * cache.useCache(*_)
+        1 * scriptCompilationHandler.loadFromDir(source, classLoader, { it.parentFile.parentFile == cacheDir && it.name == "1" }, Script) >> Script
+        0 * scriptCompilationHandler._
+    }
+
+    def "recompiles script once per build when cache is invalid"() {
+        def earlierBuild = new FileCacheBackedScriptClassCompiler(cacheRepository, Stub(CacheValidator) { isValid() >> true }, scriptCompilationHandler, progressLoggerFactory, index)
+
+        given:
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+        earlierBuild.compile(source, classLoader, transformer, Script, verifier)
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
         compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
-        1 * cacheBuilder.withValidator(validator) >> cacheBuilder
+        _ * validator.isValid() >> false
+        1 * scriptCompilationHandler.compileToDir(source, classLoader, { it.parentFile == cacheDir }, transformer, Script, verifier) >> { args -> args[2].mkdirs() }
+        2 * scriptCompilationHandler.loadFromDir(source, classLoader, { it.parentFile.parentFile == cacheDir && it.name == "2" && it.directory }, Script) >> Script
+        0 * scriptCompilationHandler._
+
+        and:
+        cacheDir.listFiles().findAll { it.directory }.size() == 1
+    }
+
+    def "does not remove classes of earlier compilation when recompiling script"() {
+        def earlierBuild = new FileCacheBackedScriptClassCompiler(cacheRepository, Stub(CacheValidator) { isValid() >> true }, scriptCompilationHandler, progressLoggerFactory, index)
+
+        given:
+        validator.isValid() >> false
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs(); new File(args[2], "Script.class").text = "content" }
+        earlierBuild.compile(source, classLoader, transformer, Script, verifier)
 
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
+        then:
+        def entryDir = cacheDir.listFiles()[0]
+        new File(entryDir, "1/Script.class").file
+        new File(entryDir, "2/Script.class").file
     }
 
-    def "compiles classes to cache directory when cache is invalid"() {
-        def initializer
+    def "removes stale temporary directories when cache is opened"() {
+        def staleDir = new File(cacheDir, "abc-123.tmp")
+        def inUseDir = new File(cacheDir, "abc-456.tmp")
+
+        given:
+        validator.isValid() >> true
+        staleDir.mkdirs()
+        staleDir.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        inUseDir.mkdirs()
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
 
         when:
-        def result = compiler.compile(source, classLoader, transformer, Script, verifier)
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
-        result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> cacheBuilder
-        1 * cacheBuilder.withDisplayName(!null) >> cacheBuilder
-        1 * cacheBuilder.withValidator(!null) >> cacheBuilder
-        1 * cacheBuilder.withInitializer(!null) >> {args -> initializer = args[0]; return cacheBuilder}
-        1 * cacheBuilder.open() >> {initializer.execute(cache); return cache}
-        1 * scriptCompilationHandler.compileToDir(source, classLoader, new File(cacheDir, "classes"), transformer, Script, verifier)
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
-        0 * scriptCompilationHandler._
+        !staleDir.exists()
+        inUseDir.directory
     }
 
-    def "reports compilation progress even in case of a failure"() {
-        def factory = Mock(ProgressLoggerFactory)
-        def delegate = Mock(Action)
-        def cache = Mock(PersistentCache)
-        def logger = Mock(ProgressLogger)
+    def "removes entries that have not been used for a while when cache is opened"() {
+        def unusedDir = new File(cacheDir, "abc")
+        def recentlyUsedDir = new File(cacheDir, "def")
 
-        def initializer = new FileCacheBackedScriptClassCompiler.ProgressReportingInitializer(factory, delegate)
+        given:
+        validator.isValid() >> true
+        new File(unusedDir, "1").mkdirs()
+        unusedDir.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(8))
+        new File(recentlyUsedDir, "1").mkdirs()
+        recentlyUsedDir.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(6))
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
 
         when:
-        initializer.execute(cache)
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        !unusedDir.exists()
+        recentlyUsedDir.directory
+    }
+
+    def "marks entry as used when script classes are loaded from the cache"() {
+        def otherBuild = new FileCacheBackedScriptClassCompiler(cacheRepository, validator, scriptCompilationHandler, progressLoggerFactory, index)
+
+        given:
+        validator.isValid() >> true
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+        otherBuild.compile(source, classLoader, transformer, Script, verifier)
+        def entryDir = cacheDir.listFiles().find { it.directory }
+        def longAgo = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2)
+        entryDir.setLastModified(longAgo)
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        entryDir.lastModified() > longAgo
+    }
+
+    def "removes classes directories that have been superseded for a while when cache is opened"() {
+        def entryDir = new File(cacheDir, "abc")
+        def superseded = new File(entryDir, "1")
+        def current = new File(entryDir, "2")
+        def recentEntryDir = new File(cacheDir, "def")
+        def recentlySuperseded = new File(recentEntryDir, "1")
+        def recentCurrent = new File(recentEntryDir, "2")
+
+        given:
+        validator.isValid() >> true
+        [superseded, current, recentlySuperseded, recentCurrent]*.mkdirs()
+        current.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        !superseded.exists()
+        current.directory
+        recentlySuperseded.directory
+        recentCurrent.directory
+    }
+
+    def "cleans up cache at most once a day"() {
+        def staleDir = new File(cacheDir, "abc-123.tmp")
+
+        given:
+        validator.isValid() >> true
+        new File(cacheDir, "cleanup.marker").createNewFile()
+        staleDir.mkdirs()
+        staleDir.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        scriptCompilationHandler.compileToDir(*_) >> { args -> args[2].mkdirs() }
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
+
+        then:
+        staleDir.directory
+        0 * cache.useCache("Clean up script class cache", _)
+    }
+
+    def "reports compilation progress even in case of a failure"() {
+        given:
+        validator.isValid() >> true
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script, verifier)
 
         then:
         def ex = thrown(RuntimeException)
         ex.message == "Boo!"
 
-        1 * factory.newOperation(FileCacheBackedScriptClassCompiler) >> logger
-        1 * logger.start("Compile script into cache", "Compiling script into cache") >> logger
+        1 * progressLogger.start("Compile script into cache", "Compiling script into cache") >> progressLogger
 
         then:
-        1 * delegate.execute(cache) >> { throw new RuntimeException("Boo!")} //stress it a bit with a failure
+        1 * scriptCompilationHandler.compileToDir(*_) >> { throw new RuntimeException("Boo!") } //stress it a bit with a failure
 
         then:
-        1 * logger.completed()
+        1 * progressLogger.completed()
+        0 * scriptCompilationHandler._
     }
 }
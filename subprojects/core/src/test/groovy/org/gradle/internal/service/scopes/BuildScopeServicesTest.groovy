@@ -35,6 +35,7 @@ import org.gradle.configuration.DefaultScriptPluginFactory
 import org.gradle.configuration.ScriptPluginFactory
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory
 import org.gradle.groovy.scripts.ScriptCompilerFactory
+import org.gradle.groovy.scripts.internal.CompiledScriptIndex
 import org.gradle.initialization.*
 import org.gradle.internal.Factory
 import org.gradle.internal.classloader.ClassLoaderFactory
@@ -86,6 +87,7 @@ public class BuildScopeServicesTest extends Specification {
         parent.get(PluginRequestApplicator) >> Mock(PluginRequestApplicator)
         parent.get(BuildCancellationToken) >> Mock(BuildCancellationToken)
         parent.get(ClassLoaderCacheFactory) >> Stub(ClassLoaderCacheFactory)
+        parent.get(CompiledScriptIndex) >> new CompiledScriptIndex()
     }
 
     def delegatesToParentForUnknownService() {
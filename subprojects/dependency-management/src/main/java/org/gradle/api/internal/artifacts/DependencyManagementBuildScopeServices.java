@@ -54,12 +54,14 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.SystemProperties;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
 import org.gradle.internal.resource.local.LocallyAvailableResourceFinder;
 import org.gradle.internal.resource.local.UniquePathKeyFileStore;
 import org.gradle.internal.resource.local.ivy.LocallyAvailableResourceFinderFactory;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.internal.resource.transport.sftp.SftpClientFactory;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.logging.ProgressLoggerFactory;
@@ -101,10 +103,11 @@ class DependencyManagementBuildScopeServices {
         return new BuildCommencedTimeProvider();
     }
 
-    ModuleVersionsCache createModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+    ModuleVersionsCache createModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, CrossBuildInMemoryCacheDecorator inMemoryCacheDecorator) {
         return new SingleFileBackedModuleVersionsCache(
                 timeProvider,
-                cacheLockingManager
+                cacheLockingManager,
+                inMemoryCacheDecorator
         );
     }
 
@@ -180,14 +183,16 @@ class DependencyManagementBuildScopeServices {
                                                                 ByUrlCachedExternalResourceIndex externalResourceIndex,
                                                                 BuildCommencedTimeProvider buildCommencedTimeProvider,
                                                                 SftpClientFactory sftpClientFactory,
-                                                                CacheLockingManager cacheLockingManager) {
+                                                                CacheLockingManager cacheLockingManager,
+                                                                HttpConnectionPool httpConnectionPool) {
         return new RepositoryTransportFactory(
                 progressLoggerFactory,
                 temporaryFileProvider,
                 externalResourceIndex,
                 buildCommencedTimeProvider,
                 sftpClientFactory,
-                cacheLockingManager
+                cacheLockingManager,
+                httpConnectionPool
         );
     }
 
@@ -209,9 +214,15 @@ class DependencyManagementBuildScopeServices {
                 versionComparator);
     }
 
+    ArtifactFilesPrefetcher createArtifactFilesPrefetcher(CacheLockingManager cacheLockingManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory) {
+        int maxConcurrentDownloads = Integer.getInteger(ArtifactFilesPrefetcher.MAX_CONCURRENT_DOWNLOADS_PROPERTY, ArtifactFilesPrefetcher.DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+        return new ArtifactFilesPrefetcher(cacheLockingManager, executorFactory, progressLoggerFactory, maxConcurrentDownloads);
+    }
+
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory, LocalComponentFactory publishModuleDescriptorConverter, DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ResolutionResultsStoreFactory resolutionResultsStoreFactory,
-                                                                VersionComparator versionComparator, ProjectRegistry<ProjectInternal> projectRegistry, ComponentIdentifierFactory componentIdentifierFactory) {
+                                                                VersionComparator versionComparator, ProjectRegistry<ProjectInternal> projectRegistry, ComponentIdentifierFactory componentIdentifierFactory,
+                                                                ArtifactFilesPrefetcher artifactFilesPrefetcher) {
         ArtifactDependencyResolver resolver = new DefaultDependencyResolver(
                 resolveIvyFactory,
                 publishModuleDescriptorConverter,
@@ -222,7 +233,8 @@ class DependencyManagementBuildScopeServices {
                 cacheLockingManager,
                 ivyContextManager,
                 resolutionResultsStoreFactory,
-                versionComparator
+                versionComparator,
+                artifactFilesPrefetcher
         );
         return new ErrorHandlingArtifactDependencyResolver(
                 new ShortcircuitEmptyConfigsArtifactDependencyResolver(
@@ -18,11 +18,13 @@ package org.gradle.api.internal.artifacts;
 
 import org.gradle.api.internal.artifacts.component.ComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.component.DefaultComponentIdentifierFactory;
+import org.gradle.api.internal.artifacts.ivyservice.CrossBuildInMemoryCacheDecorator;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultIvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.LocalComponentFactory;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.*;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.*;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 
 class DependencyManagementGlobalScopeServices {
     IvyContextManager createIvyContextManager() {
@@ -33,6 +35,14 @@ class DependencyManagementGlobalScopeServices {
         return new DefaultExcludeRuleConverter();
     }
 
+    HttpConnectionPool createHttpConnectionPool() {
+        return new HttpConnectionPool();
+    }
+
+    CrossBuildInMemoryCacheDecorator createCrossBuildInMemoryCacheDecorator() {
+        return new CrossBuildInMemoryCacheDecorator(10000);
+    }
+
     ComponentIdentifierFactory createComponentIdentifierFactory() {
         return new DefaultComponentIdentifierFactory();
     }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves the files of a set of artifacts using several threads, so that artifacts that need to be downloaded are downloaded concurrently rather than one at a time.
+ *
+ * <p>Each artifact is resolved using {@link ResolvedArtifact#getFile()}, which takes care of locking the artifact cache, so cache access is still serialized and only the
+ * network requests run concurrently. Failures are ignored, as they are reported when the caller accesses the file of the artifact.</p>
+ */
+public class ArtifactFilesPrefetcher implements Stoppable {
+    public static final String MAX_CONCURRENT_DOWNLOADS_PROPERTY = "org.gradle.artifacts.maxConcurrentDownloads";
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArtifactFilesPrefetcher.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final ExecutorFactory executorFactory;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final int maxConcurrentDownloads;
+    private StoppableExecutor executor;
+
+    public ArtifactFilesPrefetcher(CacheLockingManager cacheLockingManager, ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, int maxConcurrentDownloads) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.executorFactory = executorFactory;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    public void prefetch(final Collection<? extends ResolvedArtifact> artifacts) {
+        if (maxConcurrentDownloads <= 1 || artifacts.size() < 2) {
+            return;
+        }
+        // Release the artifact cache, in case the caller holds it, so that the workers can use it
+        cacheLockingManager.longRunningOperation("Resolve artifact files", new Runnable() {
+            public void run() {
+                resolveFiles(artifacts);
+            }
+        });
+    }
+
+    private void resolveFiles(Collection<? extends ResolvedArtifact> artifacts) {
+        final Queue<ResolvedArtifact> queue = new ConcurrentLinkedQueue<ResolvedArtifact>(artifacts);
+        final int total = artifacts.size();
+        int workers = Math.min(maxConcurrentDownloads, total);
+        final CountDownLatch finished = new CountDownLatch(workers);
+        final AtomicInteger completed = new AtomicInteger();
+        final ProgressLogger progressLogger = progressLoggerFactory.newOperation(ArtifactFilesPrefetcher.class);
+        progressLogger.setDescription("Resolve artifact files");
+        progressLogger.started();
+        try {
+            StoppableExecutor executor = getExecutor();
+            for (int i = 0; i < workers; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            ResolvedArtifact artifact;
+                            while ((artifact = queue.poll()) != null) {
+                                try {
+                                    artifact.getFile();
+                                } catch (RuntimeException e) {
+                                    LOGGER.debug("Could not resolve {}, will retry when the file is requested.", artifact, e);
+                                }
+                                int count = completed.incrementAndGet();
+                                synchronized (progressLogger) {
+                                    progressLogger.progress(String.format("%d/%d artifacts", count, total));
+                                }
+                            }
+                        } finally {
+                            finished.countDown();
+                        }
+                    }
+                });
+            }
+            finished.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            progressLogger.completed();
+        }
+    }
+
+    private synchronized StoppableExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Artifact file resolver");
+        }
+        return executor;
+    }
+
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.api.internal.artifacts.ivyservice;
 import net.jcip.annotations.ThreadSafe;
 import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.messaging.serialize.Serializer;
 
 import java.io.File;
@@ -37,6 +38,12 @@ public interface CacheLockingManager extends ArtifactCacheMetaData, CacheAccess
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer);
 
+    /**
+     * Creates a cache implementation that is managed by this locking manager, and whose entries are accessed through the given decorator.
+     * The same rules as {@link #createCache(String, Serializer, Serializer)} apply to the returned cache.
+     */
+    <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer, CacheDecorator decorator);
+
     /**
      * Returns the root directory for the file store.
      *
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.cache.internal.AbstractInMemoryCacheDecorator;
+import org.gradle.messaging.serialize.Serializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the entries of some artifact cache indexes in memory between builds, so that a build in the daemon does not need to read them again from disk.
+ * The entries of a cache are discarded when another process has written to the artifact cache since this process last used it.
+ */
+public class CrossBuildInMemoryCacheDecorator extends AbstractInMemoryCacheDecorator {
+    private final static Logger LOG = Logging.getLogger(CrossBuildInMemoryCacheDecorator.class);
+
+    private final Object lock = new Object();
+    private final int maxEntriesPerCache;
+    private final Map<String, Cache<Object, Object>> caches = new HashMap<String, Cache<Object, Object>>();
+
+    public CrossBuildInMemoryCacheDecorator(int maxEntriesPerCache) {
+        this.maxEntriesPerCache = maxEntriesPerCache;
+    }
+
+    protected Cache<Object, Object> getData(String cacheId, String cacheName, Serializer<?> valueSerializer) {
+        synchronized (lock) {
+            Cache<Object, Object> data = caches.get(cacheId);
+            if (data == null) {
+                data = CacheBuilder.newBuilder().maximumSize(maxEntriesPerCache).build();
+                caches.put(cacheId, data);
+            } else {
+                LOG.debug("Reusing in-memory cache of {}: Size{{}}", cacheId, data.size());
+            }
+            return data;
+        }
+    }
+}
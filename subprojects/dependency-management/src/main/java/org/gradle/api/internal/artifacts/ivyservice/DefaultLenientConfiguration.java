@@ -30,13 +30,15 @@ import java.util.*;
 
 public class DefaultLenientConfiguration implements LenientConfiguration {
     private CacheLockingManager cacheLockingManager;
+    private final ArtifactFilesPrefetcher artifactFilesPrefetcher;
     private final Configuration configuration;
     private ResolvedConfigurationResults results;
 
-    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager) {
+    public DefaultLenientConfiguration(Configuration configuration, ResolvedConfigurationResults results, CacheLockingManager cacheLockingManager, ArtifactFilesPrefetcher artifactFilesPrefetcher) {
         this.configuration = configuration;
         this.results = results;
         this.cacheLockingManager = cacheLockingManager;
+        this.artifactFilesPrefetcher = artifactFilesPrefetcher;
     }
 
     public boolean hasError() {
@@ -88,6 +90,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        artifactFilesPrefetcher.prefetch(allArtifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
@@ -106,6 +109,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
 
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
         final Set<File> files = new LinkedHashSet<File>();
+        artifactFilesPrefetcher.prefetch(artifacts);
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
                 for (ResolvedArtifact artifact : artifacts) {
@@ -20,6 +20,7 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.*;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.internal.resolve.result.DefaultModuleVersionListing;
 import org.gradle.internal.resolve.result.ModuleVersionListing;
 import org.gradle.messaging.serialize.Decoder;
@@ -36,11 +37,13 @@ public class SingleFileBackedModuleVersionsCache implements ModuleVersionsCache
 
     private final BuildCommencedTimeProvider timeProvider;
     private final CacheLockingManager cacheLockingManager;
+    private final CacheDecorator inMemoryCache;
     private PersistentIndexedCache<ModuleKey, ModuleVersionsCacheEntry> cache;
 
-    public SingleFileBackedModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+    public SingleFileBackedModuleVersionsCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, CacheDecorator inMemoryCache) {
         this.timeProvider = timeProvider;
         this.cacheLockingManager = cacheLockingManager;
+        this.inMemoryCache = inMemoryCache;
     }
 
     private PersistentIndexedCache<ModuleKey, ModuleVersionsCacheEntry> getCache() {
@@ -51,7 +54,7 @@ public class SingleFileBackedModuleVersionsCache implements ModuleVersionsCache
     }
 
     private PersistentIndexedCache<ModuleKey, ModuleVersionsCacheEntry> initCache() {
-        return cacheLockingManager.createCache("module-versions", new ModuleKeySerializer(), new ModuleVersionsCacheEntrySerializer());
+        return cacheLockingManager.createCache("module-versions", new ModuleKeySerializer(), new ModuleVersionsCacheEntrySerializer(), inMemoryCache);
     }
 
     public void cacheModuleVersionList(ModuleComponentRepository repository, ModuleIdentifier moduleId, ModuleVersionListing listedVersions) {
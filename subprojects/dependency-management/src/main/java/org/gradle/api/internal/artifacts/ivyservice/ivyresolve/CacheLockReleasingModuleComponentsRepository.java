@@ -26,13 +26,14 @@ import org.gradle.internal.resolve.result.BuildableModuleComponentVersionSelecti
 
 /**
  * A wrapper around a {@link ModuleComponentRepository} that handles releasing the cache lock before making remote calls.
+ * Concurrent listings of the same module are coordinated so that the repository is asked only once.
  */
 public class CacheLockReleasingModuleComponentsRepository extends BaseModuleComponentRepository {
     private final ModuleComponentRepositoryAccess remoteAccess;
 
-    public CacheLockReleasingModuleComponentsRepository(ModuleComponentRepository repository, CacheLockingManager cacheLockingManager) {
+    public CacheLockReleasingModuleComponentsRepository(ModuleComponentRepository repository, CacheLockingManager cacheLockingManager, ModuleVersionListingCoordinator listingCoordinator) {
         super(repository);
-        this.remoteAccess = new LockReleasingRepositoryAccess(repository.getName(), repository.getRemoteAccess(), cacheLockingManager);
+        this.remoteAccess = new LockReleasingRepositoryAccess(repository.getId(), repository.getName(), repository.getRemoteAccess(), cacheLockingManager, listingCoordinator);
     }
 
     @Override
@@ -41,20 +42,24 @@ public class CacheLockReleasingModuleComponentsRepository extends BaseModuleComp
     }
 
     private static class LockReleasingRepositoryAccess implements ModuleComponentRepositoryAccess {
+        private final String id;
         private final String name;
         private final ModuleComponentRepositoryAccess delegate;
         private final CacheLockingManager cacheLockingManager;
+        private final ModuleVersionListingCoordinator listingCoordinator;
 
-        private LockReleasingRepositoryAccess(String name, ModuleComponentRepositoryAccess delegate, CacheLockingManager cacheLockingManager) {
+        private LockReleasingRepositoryAccess(String id, String name, ModuleComponentRepositoryAccess delegate, CacheLockingManager cacheLockingManager, ModuleVersionListingCoordinator listingCoordinator) {
+            this.id = id;
             this.name = name;
             this.delegate = delegate;
             this.cacheLockingManager = cacheLockingManager;
+            this.listingCoordinator = listingCoordinator;
         }
 
         public void listModuleVersions(final DependencyMetaData dependency, final BuildableModuleComponentVersionSelectionResolveResult result) {
             cacheLockingManager.longRunningOperation(String.format("List %s using repository %s", dependency, name), new Runnable() {
                 public void run() {
-                    delegate.listModuleVersions(dependency, result);
+                    listingCoordinator.listModuleVersions(id, dependency, result, delegate);
                 }
             });
         }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve;
+
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.model.DependencyMetaData;
+import org.gradle.internal.resolve.ModuleVersionResolveException;
+import org.gradle.internal.resolve.result.BuildableModuleComponentVersionSelectionResolveResult;
+import org.gradle.internal.resolve.result.ModuleVersionListing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Makes sure that a module is listed at most once at a time for a given repository. When several threads need the versions of the same module,
+ * the first one lists the module and the others wait for its result instead of sending the same requests to the repository.
+ *
+ * <p>Waiting threads must not hold the cache lock.
+ */
+public class ModuleVersionListingCoordinator {
+    private final ConcurrentMap<String, InFlightListing> inFlight = new ConcurrentHashMap<String, InFlightListing>();
+
+    public void listModuleVersions(String repositoryId, DependencyMetaData dependency, BuildableModuleComponentVersionSelectionResolveResult result, ModuleComponentRepositoryAccess delegate) {
+        ModuleVersionSelector requested = dependency.getRequested();
+        String key = repositoryId + ":" + requested.getGroup() + ":" + requested.getName();
+
+        InFlightListing listing = new InFlightListing();
+        InFlightListing existing = inFlight.putIfAbsent(key, listing);
+        if (existing != null) {
+            if (existing.await(result)) {
+                return;
+            }
+            // The other listing did not produce a result, so list the module ourselves
+            delegate.listModuleVersions(dependency, result);
+            return;
+        }
+
+        try {
+            delegate.listModuleVersions(dependency, result);
+            listing.publish(result);
+        } finally {
+            inFlight.remove(key, listing);
+            listing.completed.countDown();
+        }
+    }
+
+    private static class InFlightListing {
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private BuildableModuleComponentVersionSelectionResolveResult.State state = BuildableModuleComponentVersionSelectionResolveResult.State.Unknown;
+        private List<String> versions;
+        private ModuleVersionResolveException failure;
+        private boolean authoritative;
+        private List<String> attempted;
+
+        void publish(BuildableModuleComponentVersionSelectionResolveResult result) {
+            attempted = new ArrayList<String>(result.getAttempted());
+            state = result.getState();
+            switch (state) {
+                case Listed:
+                    ModuleVersionListing listing = result.getVersions();
+                    versions = new ArrayList<String>(listing.getVersions().size());
+                    for (Versioned versioned : listing.getVersions()) {
+                        versions.add(versioned.getVersion());
+                    }
+                    authoritative = result.isAuthoritative();
+                    break;
+                case Failed:
+                    failure = result.getFailure();
+                    authoritative = result.isAuthoritative();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Waits for the listing to complete, and copies its outcome to the given result. Returns false when the listing did not produce a result.
+         */
+        boolean await(BuildableModuleComponentVersionSelectionResolveResult result) {
+            try {
+                completed.await();
+            } catch (InterruptedException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            switch (state) {
+                case Listed:
+                    copyAttempted(result);
+                    result.listed(versions);
+                    result.setAuthoritative(authoritative);
+                    return true;
+                case Failed:
+                    copyAttempted(result);
+                    result.failed(failure);
+                    result.setAuthoritative(authoritative);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private void copyAttempted(BuildableModuleComponentVersionSelectionResolveResult result) {
+            for (String location : attempted) {
+                result.attempted(location);
+            }
+        }
+    }
+}
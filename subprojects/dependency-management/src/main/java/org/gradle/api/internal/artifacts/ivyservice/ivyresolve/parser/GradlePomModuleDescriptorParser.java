@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.ivy.core.module.descriptor.Configuration;
 import org.apache.ivy.core.module.descriptor.Configuration.Visibility;
 import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor;
@@ -33,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.SAXException;
 
+import java.io.File;
 import java.io.IOException;
 import java.text.ParseException;
 import java.util.Collection;
@@ -46,6 +49,10 @@ import java.util.Map;
 public final class GradlePomModuleDescriptorParser extends AbstractModuleDescriptorParser {
     private static final Logger LOGGER = LoggerFactory.getLogger(GradlePomModuleDescriptorParser.class);
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
+    private static final int MAX_CACHED_POMS = 200;
+
+    // Parent and imported POMs, such as a BOM or the parent of a multi-module project, are usually shared by many modules. Keep them once parsed.
+    private final Cache<String, PomReader> parsedPoms = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_POMS).build();
 
     @Override
     protected String getTypeName() {
@@ -202,9 +209,23 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      */
     private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleVersionIdentifier parentId) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
-        PomReader pomReader = new PomReader(localResource);
+        String cacheKey = toCacheKey(localResource);
+        PomReader pomReader = parsedPoms.getIfPresent(cacheKey);
+        if (pomReader != null) {
+            return pomReader;
+        }
+        pomReader = new PomReader(localResource);
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader);
         doParsePom(parseContext, mdBuilder, pomReader);
+        // Resolve the inherited elements now, so that the cached reader is not changed when it is later used by other POMs
+        pomReader.getDependencies();
+        pomReader.getDependencyMgt();
+        parsedPoms.put(cacheKey, pomReader);
         return pomReader;
     }
+
+    private static String toCacheKey(LocallyAvailableExternalResource resource) {
+        File file = resource.getLocalResource().getFile();
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An element of a POM, as read by {@link PomStreamParser}. Holds the element name, the text directly contained by the element and its child elements.
+ */
+public final class PomElement {
+    private final String name;
+    private List<PomElement> children = Collections.emptyList();
+    private StringBuilder textBuilder;
+    private String text = "";
+
+    PomElement(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the text directly contained by this element, excluding the text of child elements.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public List<PomElement> getChildren() {
+        return children;
+    }
+
+    void addChild(PomElement child) {
+        if (children.isEmpty()) {
+            children = new ArrayList<PomElement>();
+        }
+        children.add(child);
+    }
+
+    void appendText(String value) {
+        if (textBuilder == null) {
+            textBuilder = new StringBuilder(value.length());
+        }
+        textBuilder.append(value);
+    }
+
+    void end() {
+        if (textBuilder != null) {
+            text = textBuilder.toString();
+            textBuilder = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
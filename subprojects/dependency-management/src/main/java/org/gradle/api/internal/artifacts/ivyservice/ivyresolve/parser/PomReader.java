@@ -19,28 +19,20 @@ import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.module.descriptor.License;
 import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
-import org.apache.ivy.util.XMLHelper;
 import org.gradle.api.Transformer;
 import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.MavenDependencyKey;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.PomDependencyMgt;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.data.PomProfile;
 import org.gradle.internal.resource.LocallyAvailableExternalResource;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.EntityResolver;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
-import javax.xml.parsers.DocumentBuilder;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
 
-import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.*;
+import static org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomStreamParser.*;
 
 /**
  * Copied from org.apache.ivy.plugins.parser.m2.PomReader.
@@ -87,22 +79,22 @@ public class PomReader implements PomParent {
     private final Map<MavenDependencyKey, PomDependencyMgt> importedDependencyMgts = new LinkedHashMap<MavenDependencyKey, PomDependencyMgt>();
     private Map<MavenDependencyKey, PomDependencyData> resolvedDependencies;
 
-    private final Element projectElement;
-    private final Element parentElement;
+    private final String systemId;
+    private final PomElement projectElement;
+    private final PomElement parentElement;
 
     public PomReader(final LocallyAvailableExternalResource resource) throws IOException, SAXException {
-        final String systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
-        Document pomDomDoc = resource.withContent(new Transformer<Document, InputStream>() {
-            public Document transform(InputStream inputStream) {
+        systemId = resource.getLocalResource().getFile().toURI().toASCIIString();
+        projectElement = resource.withContent(new Transformer<PomElement, InputStream>() {
+            public PomElement transform(InputStream inputStream) {
                 try {
-                    return parseToDom(inputStream, systemId);
+                    return PomStreamParser.parse(inputStream, systemId);
                 } catch (Exception e) {
                     throw new MetaDataParseException("POM", resource, e);
                 }
             }
         });
-        projectElement = pomDomDoc.getDocumentElement();
-        if (!PROJECT.equals(projectElement.getNodeName()) && !MODEL.equals(projectElement.getNodeName())) {
+        if (!PROJECT.equals(projectElement.getName()) && !MODEL.equals(projectElement.getName())) {
             throw new SAXParseException("project must be the root tag", systemId, systemId, 0, 0);
         }
         parentElement = getFirstChildElement(projectElement, PARENT);
@@ -173,22 +165,7 @@ public class PomReader implements PomParent {
 
     @Override
     public String toString() {
-        return projectElement.getOwnerDocument().getDocumentURI();
-    }
-
-    public static Document parseToDom(InputStream stream, String systemId) throws IOException, SAXException {
-        EntityResolver entityResolver = new EntityResolver() {
-            public InputSource resolveEntity(String publicId, String systemId)
-                    throws SAXException, IOException {
-                if ((systemId != null) && systemId.endsWith("m2-entities.ent")) {
-                    return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream("m2-entities.ent"));
-                }
-                return null;
-            }
-        };
-        InputStream dtdStream = new AddDTDFilterInputStream(stream);
-        DocumentBuilder docBuilder = XMLHelper.getDocBuilder(entityResolver);
-        return docBuilder.parse(dtdStream, systemId);
+        return systemId;
     }
 
     public boolean hasParent() {
@@ -291,14 +268,13 @@ public class PomReader implements PomParent {
     }
 
     public List<License> getLicenses() {
-        Element licenses = getFirstChildElement(projectElement, LICENSES);
+        PomElement licenses = getFirstChildElement(projectElement, LICENSES);
         if (licenses == null) {
             return Collections.emptyList();
         }
-        licenses.normalize();
         List<License> lics = new ArrayList<License>();
-        for (Element license : getAllChilds(licenses)) {
-            if (LICENSE.equals(license.getNodeName())) {
+        for (PomElement license : getAllChilds(licenses)) {
+            if (LICENSE.equals(license.getName())) {
                 String name = getFirstChildText(license, LICENSE_NAME);
                 String url = getFirstChildText(license, LICENSE_URL);
 
@@ -319,8 +295,8 @@ public class PomReader implements PomParent {
     }
 
     public ModuleRevisionId getRelocation() {
-        Element distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
-        Element relocation = getFirstChildElement(distrMgt , RELOCATION);
+        PomElement distrMgt = getFirstChildElement(projectElement, DISTRIBUTION_MGT);
+        PomElement relocation = getFirstChildElement(distrMgt , RELOCATION);
         if (relocation == null) {
             return null;
         } else {
@@ -367,16 +343,12 @@ public class PomReader implements PomParent {
         return dependencies;
     }
 
-    private List<PomDependencyData> getDependencyData(Element parentElement) {
+    private List<PomDependencyData> getDependencyData(PomElement parentElement) {
         List<PomDependencyData> depElements = new ArrayList<PomDependencyData>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depElements.add(new PomDependencyData((Element) node));
-                }
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCIES);
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depElements.add(new PomDependencyData(node));
             }
         }
 
@@ -424,18 +396,14 @@ public class PomReader implements PomParent {
         return declaredDependencyMgts;
     }
 
-    private List<PomDependencyMgt> getDependencyMgt(Element parentElement) {
+    private List<PomDependencyMgt> getDependencyMgt(PomElement parentElement) {
         List<PomDependencyMgt> depMgmtElements = new ArrayList<PomDependencyMgt>();
-        Element dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
+        PomElement dependenciesElement = getFirstChildElement(parentElement, DEPENDENCY_MGT);
         dependenciesElement = getFirstChildElement(dependenciesElement, DEPENDENCIES);
 
-        if (dependenciesElement != null) {
-            NodeList childs = dependenciesElement.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element && DEPENDENCY.equals(node.getNodeName())) {
-                    depMgmtElements.add(new PomDependencyMgtElement((Element) node));
-                }
+        for (PomElement node : getAllChilds(dependenciesElement)) {
+            if (DEPENDENCY.equals(node.getName())) {
+                depMgmtElements.add(new PomDependencyMgtElement(node));
             }
         }
 
@@ -459,9 +427,9 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyMgtElement implements PomDependencyMgt {
-        private final Element depElement;
+        private final PomElement depElement;
 
-        PomDependencyMgtElement(Element depElement) {
+        PomDependencyMgtElement(PomElement depElement) {
             this.depElement = depElement;
         }
 
@@ -515,18 +483,14 @@ public class PomReader implements PomParent {
         }
 
         public List<ModuleId> getExcludedModules() {
-            Element exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
+            PomElement exclusionsElement = getFirstChildElement(depElement, EXCLUSIONS);
             List<ModuleId> exclusions = new LinkedList<ModuleId>();
-            if (exclusionsElement != null) {
-                NodeList childs = exclusionsElement.getChildNodes();
-                for (int i = 0; i < childs.getLength(); i++) {
-                    Node node = childs.item(i);
-                    if (node instanceof Element && EXCLUSION.equals(node.getNodeName())) {
-                        String groupId = getFirstChildText((Element) node, GROUP_ID);
-                        String artifactId = getFirstChildText((Element) node, ARTIFACT_ID);
-                        if ((groupId != null) && (artifactId != null)) {
-                            exclusions.add(IvyUtil.createModuleId(groupId, artifactId));
-                        }
+            for (PomElement node : getAllChilds(exclusionsElement)) {
+                if (EXCLUSION.equals(node.getName())) {
+                    String groupId = getFirstChildText(node, GROUP_ID);
+                    String artifactId = getFirstChildText(node, ARTIFACT_ID);
+                    if ((groupId != null) && (artifactId != null)) {
+                        exclusions.add(IvyUtil.createModuleId(groupId, artifactId));
                     }
                 }
             }
@@ -535,24 +499,24 @@ public class PomReader implements PomParent {
     }
 
     public class PomDependencyData extends PomDependencyMgtElement {
-        private final Element depElement;
-        PomDependencyData(Element depElement) {
+        private final PomElement depElement;
+        PomDependencyData(PomElement depElement) {
             super(depElement);
             this.depElement = depElement;
         }
 
         public boolean isOptional() {
-            Element e = getFirstChildElement(depElement, OPTIONAL);
+            PomElement e = getFirstChildElement(depElement, OPTIONAL);
             return (e != null) && "true".equalsIgnoreCase(getTextContent(e));
         }
     }
 
     public class PomProfileElement implements PomProfile {
-        private final Element element;
+        private final PomElement element;
         private List<PomDependencyMgt> declaredDependencyMgts;
         private List<PomDependencyData> declaredDependencies;
 
-        PomProfileElement(Element element) {
+        PomProfileElement(PomElement element) {
             this.element = element;
         }
 
@@ -590,12 +554,12 @@ public class PomReader implements PomParent {
         if(declaredActivePomProfiles == null) {
             List<PomProfile> activeByDefaultPomProfiles = new ArrayList<PomProfile>();
             List<PomProfile> activeByAbsenceOfPropertyPomProfiles = new ArrayList<PomProfile>();
-            Element profilesElement = getFirstChildElement(projectElement, PROFILES);
+            PomElement profilesElement = getFirstChildElement(projectElement, PROFILES);
 
             if(profilesElement != null) {
-                for(Element profileElement : getAllChilds(profilesElement)) {
-                    if(PROFILE.equals(profileElement.getNodeName())) {
-                        Element activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
+                for(PomElement profileElement : getAllChilds(profilesElement)) {
+                    if(PROFILE.equals(profileElement.getName())) {
+                        PomElement activationElement = getFirstChildElement(profileElement, PROFILE_ACTIVATION);
 
                         if(activationElement != null) {
                             String activeByDefault = getFirstChildText(activationElement, PROFILE_ACTIVATION_ACTIVE_BY_DEFAULT);
@@ -603,7 +567,7 @@ public class PomReader implements PomParent {
                             if(activeByDefault != null && "true".equals(activeByDefault)) {
                                 activeByDefaultPomProfiles.add(new PomProfileElement(profileElement));
                             } else {
-                                Element propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
+                                PomElement propertyElement = getFirstChildElement(activationElement, PROFILE_ACTIVATION_PROPERTY);
 
                                 if(propertyElement != null) {
                                     if(isActivationPropertyActivated(propertyElement)) {
@@ -641,7 +605,7 @@ public class PomReader implements PomParent {
      * @return Activation indicator
      * @see <a href="http://books.sonatype.com/mvnref-book/reference/profiles-sect-activation.html#profiles-sect-activation-config">Maven documentation</a>
      */
-    private boolean isActivationPropertyActivated(Element propertyElement) {
+    private boolean isActivationPropertyActivated(PomElement propertyElement) {
         String propertyName = getFirstChildText(propertyElement, "name");
         return propertyName.startsWith("!");
     }
@@ -653,14 +617,11 @@ public class PomReader implements PomParent {
         return getPomProperties(projectElement);
     }
 
-    private Map<String, String> getPomProperties(Element parentElement) {
+    private Map<String, String> getPomProperties(PomElement parentElement) {
         Map<String, String> pomProperties = new HashMap<String, String>();
-        Element propsEl = getFirstChildElement(parentElement, PROPERTIES);
-        if (propsEl != null) {
-            propsEl.normalize();
-        }
-        for (Element prop : getAllChilds(propsEl)) {
-            pomProperties.put(prop.getNodeName(), getTextContent(prop));
+        PomElement propsEl = getFirstChildElement(parentElement, PROPERTIES);
+        for (PomElement prop : getAllChilds(propsEl)) {
+            pomProperties.put(prop.getName(), getTextContent(prop));
         }
         return pomProperties;
     }
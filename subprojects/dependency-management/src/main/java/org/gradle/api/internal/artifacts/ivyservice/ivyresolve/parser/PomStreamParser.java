@@ -0,0 +1,177 @@
+/*
+ * Copyright 2014 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a POM into a tree of {@link PomElement} using a streaming parser, rather than building a DOM.
+ *
+ * <p>Only the elements that {@link PomReader} uses are kept. Large sections that have no influence on the module meta-data, such as
+ * {@code build}, {@code reporting} or {@code developers}, are skipped as they are read.</p>
+ */
+public final class PomStreamParser {
+    private static final String M2_ENTITIES = "m2-entities.ent";
+    private static final String DISTRIBUTION_MGT = "distributionManagement";
+    private static final String PROFILES = "profiles";
+
+    // These must include every element that PomReader reads
+    private static final Set<String> PROJECT_CHILDREN = ImmutableSet.of(
+            "parent", "groupId", "artifactId", "version", "packaging", "description", "url", "licenses",
+            DISTRIBUTION_MGT, "properties", "dependencies", "dependencyManagement", PROFILES);
+    private static final Set<String> DISTRIBUTION_MGT_CHILDREN = ImmutableSet.of("relocation");
+    private static final Set<String> PROFILE_CHILDREN = ImmutableSet.of("id", "activation", "properties", "dependencies", "dependencyManagement");
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private PomStreamParser() {}
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setXMLResolver(new XMLResolver() {
+            public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) {
+                if ((systemID != null) && systemID.endsWith(M2_ENTITIES)) {
+                    return org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream(M2_ENTITIES);
+                }
+                return null;
+            }
+        });
+        return factory;
+    }
+
+    /**
+     * Parses the given POM content, returning its root element.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream, M2_ENTITIES));
+        try {
+            PomElement root = null;
+            List<PomElement> path = new ArrayList<PomElement>();
+            int skippedDepth = 0;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (skippedDepth > 0) {
+                            skippedDepth++;
+                            break;
+                        }
+                        String name = getName(reader);
+                        if (!isRetained(path, name)) {
+                            skippedDepth = 1;
+                            break;
+                        }
+                        PomElement element = new PomElement(name);
+                        if (path.isEmpty()) {
+                            root = element;
+                        } else {
+                            path.get(path.size() - 1).addChild(element);
+                        }
+                        path.add(element);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        if (skippedDepth > 0) {
+                            skippedDepth--;
+                        } else {
+                            path.remove(path.size() - 1).end();
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (skippedDepth == 0 && !path.isEmpty()) {
+                            path.get(path.size() - 1).appendText(reader.getText());
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return root;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.length() == 0) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+
+    private static boolean isRetained(List<PomElement> path, String name) {
+        switch (path.size()) {
+            case 1:
+                return PROJECT_CHILDREN.contains(name);
+            case 2:
+                return !DISTRIBUTION_MGT.equals(path.get(1).getName()) || DISTRIBUTION_MGT_CHILDREN.contains(name);
+            case 3:
+                return !PROFILES.equals(path.get(1).getName()) || PROFILE_CHILDREN.contains(name);
+            default:
+                return true;
+        }
+    }
+
+    public static String getTextContent(PomElement element) {
+        return element.getText();
+    }
+
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
+        if (node != null) {
+            return getTextContent(node);
+        } else {
+            return null;
+        }
+    }
+
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
+        if (parentElem == null) {
+            return null;
+        }
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+}
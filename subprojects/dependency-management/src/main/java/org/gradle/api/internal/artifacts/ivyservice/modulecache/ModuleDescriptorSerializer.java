@@ -0,0 +1,499 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import com.google.common.collect.Sets;
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.component.external.model.BuildableIvyModuleResolveMetaData;
+import org.gradle.internal.component.model.DefaultIvyArtifactName;
+import org.gradle.messaging.serialize.Decoder;
+import org.gradle.messaging.serialize.Encoder;
+import org.gradle.messaging.serialize.Serializer;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * Writes the module descriptors held in the meta-data cache in a compact binary format, so that a cached descriptor can be read back without parsing an ivy.xml file.
+ *
+ * <p>Holds the same information as the ivy.xml written by {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}, and builds the same
+ * descriptor that {@link org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser} builds when reading that file.</p>
+ */
+class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private final ResolverStrategy resolverStrategy;
+    private final Field dependencyConfigField;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+        try {
+            dependencyConfigField = DefaultDependencyDescriptor.class.getDeclaredField("confs");
+        } catch (NoSuchFieldException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        dependencyConfigField.setAccessible(true);
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor md) throws Exception {
+        if (md.getInheritedDescriptors().length != 0) {
+            throw new UnsupportedOperationException("Extends descriptors not supported.");
+        }
+        writeStringMap(encoder, md.getExtraAttributesNamespaces());
+        writeInfo(encoder, md);
+        writeConfigurations(encoder, md);
+        writeArtifacts(encoder, md);
+        writeDependencies(encoder, md);
+        writeExcludeRules(encoder, md.getAllExcludeRules());
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        DefaultModuleDescriptor md = new DefaultModuleDescriptor(XmlModuleDescriptorParser.getInstance(), null);
+        for (Map.Entry<String, String> entry : readStringMap(decoder).entrySet()) {
+            md.addExtraAttributeNamespace(entry.getKey(), entry.getValue());
+        }
+        readInfo(decoder, md);
+        BuildableIvyModuleResolveMetaData metaData = new BuildableIvyModuleResolveMetaData(md);
+        readConfigurations(decoder, md);
+        readArtifacts(decoder, metaData);
+        readDependencies(decoder, md);
+        for (ExcludeRule rule : readExcludeRules(decoder)) {
+            if (rule.getConfigurations().length == 0) {
+                // Applies to all configurations, as for an ivy.xml exclude without configurations
+                for (String configuration : md.getConfigurationsNames()) {
+                    ((DefaultExcludeRule) rule).addConfiguration(configuration);
+                }
+            }
+            md.addExcludeRule(rule);
+        }
+        md.check();
+        return md;
+    }
+
+    private void writeInfo(Encoder encoder, ModuleDescriptor md) throws Exception {
+        ModuleRevisionId moduleRevisionId = md.getModuleRevisionId();
+        ModuleRevisionId resolvedModuleRevisionId = md.getResolvedModuleRevisionId();
+        encoder.writeString(moduleRevisionId.getOrganisation());
+        encoder.writeString(moduleRevisionId.getName());
+        encoder.writeNullableString(resolvedModuleRevisionId.getBranch());
+        encoder.writeNullableString(resolvedModuleRevisionId.getRevision());
+        writeStringMap(encoder, md.getExtraAttributes().isEmpty() ? Collections.<String, String>emptyMap() : md.getQualifiedExtraAttributes());
+        encoder.writeNullableString(md.getStatus());
+        Date publicationDate = md.getResolvedPublicationDate();
+        encoder.writeBoolean(publicationDate != null);
+        if (publicationDate != null) {
+            encoder.writeLong(publicationDate.getTime());
+        }
+        encoder.writeBoolean(md.isDefault());
+
+        License[] licenses = md.getLicenses();
+        encoder.writeSmallInt(licenses.length);
+        for (License license : licenses) {
+            encoder.writeNullableString(license.getName());
+            encoder.writeNullableString(license.getUrl());
+        }
+
+        boolean hasDescription = md.getHomePage() != null || md.getDescription() != null;
+        encoder.writeBoolean(hasDescription);
+        if (hasDescription) {
+            encoder.writeNullableString(md.getHomePage());
+            encoder.writeNullableString(md.getDescription());
+        }
+
+        Map<NamespaceId, String> extraInfo = new LinkedHashMap<NamespaceId, String>();
+        for (Object o : md.getExtraInfo().entrySet()) {
+            Map.Entry entry = (Map.Entry) o;
+            if (entry.getKey() instanceof NamespaceId && entry.getValue() != null && ((String) entry.getValue()).length() > 0) {
+                extraInfo.put((NamespaceId) entry.getKey(), (String) entry.getValue());
+            }
+        }
+        encoder.writeSmallInt(extraInfo.size());
+        for (Map.Entry<NamespaceId, String> entry : extraInfo.entrySet()) {
+            encoder.writeString(entry.getKey().getNamespace());
+            encoder.writeString(entry.getKey().getName());
+            encoder.writeString(entry.getValue());
+        }
+    }
+
+    private void readInfo(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        String organisation = decoder.readString();
+        String module = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        Map<String, String> extraAttributes = readStringMap(decoder);
+        md.setModuleRevisionId(IvyUtil.createModuleRevisionId(organisation, module, branch, revision, extraAttributes));
+        String status = decoder.readNullableString();
+        md.setStatus(status == null ? "integration" : status);
+        if (decoder.readBoolean()) {
+            md.setPublicationDate(new Date(decoder.readLong()));
+        }
+        md.setDefault(decoder.readBoolean());
+
+        int licenseCount = decoder.readSmallInt();
+        for (int i = 0; i < licenseCount; i++) {
+            md.addLicense(new License(decoder.readNullableString(), decoder.readNullableString()));
+        }
+
+        if (decoder.readBoolean()) {
+            md.setHomePage(decoder.readNullableString());
+            String description = decoder.readNullableString();
+            md.setDescription(description == null ? "" : description.trim());
+        }
+
+        int extraInfoCount = decoder.readSmallInt();
+        for (int i = 0; i < extraInfoCount; i++) {
+            NamespaceId id = new NamespaceId(decoder.readString(), decoder.readString());
+            md.getExtraInfo().put(id, decoder.readString());
+        }
+    }
+
+    private void writeConfigurations(Encoder encoder, ModuleDescriptor md) throws Exception {
+        Configuration[] configurations = md.getConfigurations();
+        encoder.writeSmallInt(configurations.length);
+        for (Configuration configuration : configurations) {
+            encoder.writeString(configuration.getName());
+            encoder.writeString(configuration.getVisibility().toString());
+            encoder.writeNullableString(configuration.getDescription());
+            writeStrings(encoder, configuration.getExtends());
+            encoder.writeBoolean(configuration.isTransitive());
+            encoder.writeNullableString(configuration.getDeprecated());
+            writeStringMap(encoder, configuration.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readConfigurations(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            Configuration.Visibility visibility = Configuration.Visibility.getVisibility(decoder.readString());
+            String description = decoder.readNullableString();
+            String[] extendsFrom = readStrings(decoder);
+            boolean transitive = decoder.readBoolean();
+            String deprecated = decoder.readNullableString();
+            Configuration configuration = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> entry : readStringMap(decoder).entrySet()) {
+                configuration.setExtraAttribute(entry.getKey(), entry.getValue());
+            }
+            md.addConfiguration(configuration);
+        }
+        if (count == 0) {
+            md.addConfiguration(new Configuration("default"));
+        }
+        for (Configuration configuration : md.getConfigurations()) {
+            configuration.replaceWildcards(md);
+        }
+    }
+
+    private void writeArtifacts(Encoder encoder, ModuleDescriptor md) throws Exception {
+        Artifact[] artifacts = md.getAllArtifacts();
+        encoder.writeSmallInt(artifacts.length);
+        for (Artifact artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeNullableString(artifact.getExt());
+            writeStrings(encoder, artifact.getConfigurations());
+            writeStringMap(encoder, artifact.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readArtifacts(Decoder decoder, BuildableIvyModuleResolveMetaData metaData) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            String type = decoder.readString();
+            String ext = decoder.readNullableString();
+            Set<String> configurations = Sets.newLinkedHashSet(Arrays.asList(readStrings(decoder)));
+            Map<String, String> extraAttributes = readStringMap(decoder);
+            metaData.addArtifact(new DefaultIvyArtifactName(name, type, ext, extraAttributes), configurations);
+        }
+    }
+
+    private void writeDependencies(Encoder encoder, ModuleDescriptor md) throws Exception {
+        DependencyDescriptor[] dependencies = md.getDependencies();
+        encoder.writeSmallInt(dependencies.length);
+        String[] configurations = md.getConfigurationsNames();
+        for (DependencyDescriptor dependency : dependencies) {
+            writeDependency(encoder, dependency, configurations);
+        }
+    }
+
+    private void writeDependency(Encoder encoder, DependencyDescriptor dependency, String[] configurations) throws Exception {
+        ModuleRevisionId revisionId = dependency.getDependencyRevisionId();
+        encoder.writeString(revisionId.getOrganisation());
+        encoder.writeString(revisionId.getName());
+        encoder.writeNullableString(revisionId.getBranch());
+        encoder.writeString(revisionId.getRevision());
+        writeStringMap(encoder, revisionId.getQualifiedExtraAttributes());
+        ModuleRevisionId dynamicId = dependency.getDynamicConstraintDependencyRevisionId();
+        boolean hasConstraint = !dynamicId.equals(revisionId);
+        encoder.writeBoolean(hasConstraint);
+        if (hasConstraint) {
+            encoder.writeNullableString(dynamicId.getBranch());
+            encoder.writeString(dynamicId.getRevision());
+        }
+        encoder.writeBoolean(dependency.isForce());
+        encoder.writeBoolean(dependency.isChanging());
+        encoder.writeBoolean(dependency.isTransitive());
+
+        String[] moduleConfigurations = dependency.getModuleConfigurations();
+        Map<String, List<String>> configMappings = getConfigMappings(dependency);
+        encoder.writeSmallInt(moduleConfigurations.length);
+        for (String moduleConfiguration : moduleConfigurations) {
+            encoder.writeString(moduleConfiguration);
+            List<String> dependencyConfigurations = configMappings.get(moduleConfiguration);
+            writeStrings(encoder, dependencyConfigurations.toArray(new String[dependencyConfigurations.size()]));
+        }
+
+        // Artifacts and rules are written with the configurations they are attached to on the dependency. These are not always recorded on the
+        // artifact or rule itself, for example for dependencies read from a POM
+        Map<String, Object[]> artifactsByConfiguration = new LinkedHashMap<String, Object[]>();
+        Map<String, Object[]> includeRulesByConfiguration = new LinkedHashMap<String, Object[]>();
+        Map<String, Object[]> excludeRulesByConfiguration = new LinkedHashMap<String, Object[]>();
+        for (String configuration : configurations) {
+            artifactsByConfiguration.put(configuration, dependency.getDependencyArtifacts(configuration));
+            includeRulesByConfiguration.put(configuration, dependency.getIncludeRules(configuration));
+            excludeRulesByConfiguration.put(configuration, dependency.getExcludeRules(configuration));
+        }
+
+        DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+        encoder.writeSmallInt(artifacts.length);
+        for (DependencyArtifactDescriptor artifact : artifacts) {
+            encoder.writeString(artifact.getName());
+            encoder.writeString(artifact.getType());
+            encoder.writeNullableString(artifact.getExt());
+            writeStrings(encoder, getConfigurations(artifact, artifact.getConfigurations(), artifactsByConfiguration));
+            writeStringMap(encoder, artifact.getQualifiedExtraAttributes());
+        }
+        IncludeRule[] includeRules = dependency.getAllIncludeRules();
+        encoder.writeSmallInt(includeRules.length);
+        for (IncludeRule rule : includeRules) {
+            writeRule(encoder, rule.getId(), getConfigurations(rule, rule.getConfigurations(), includeRulesByConfiguration), rule.getMatcher());
+        }
+        ExcludeRule[] excludeRules = dependency.getAllExcludeRules();
+        encoder.writeSmallInt(excludeRules.length);
+        for (ExcludeRule rule : excludeRules) {
+            writeRule(encoder, rule.getId(), getConfigurations(rule, rule.getConfigurations(), excludeRulesByConfiguration), rule.getMatcher());
+        }
+    }
+
+    private static String[] getConfigurations(Object element, String[] declaredConfigurations, Map<String, Object[]> elementsByConfiguration) {
+        List<String> configurations = new ArrayList<String>();
+        for (Map.Entry<String, Object[]> entry : elementsByConfiguration.entrySet()) {
+            for (Object candidate : entry.getValue()) {
+                if (candidate == element) {
+                    configurations.add(entry.getKey());
+                    break;
+                }
+            }
+        }
+        if (configurations.isEmpty()) {
+            return declaredConfigurations;
+        }
+        return configurations.toArray(new String[configurations.size()]);
+    }
+
+    private void readDependencies(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            md.addDependency(readDependency(decoder, md));
+        }
+    }
+
+    private DependencyDescriptor readDependency(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        String org = decoder.readString();
+        String name = decoder.readString();
+        String branch = decoder.readNullableString();
+        String rev = decoder.readString();
+        Map<String, String> extraAttributes = readStringMap(decoder);
+        ModuleRevisionId revId = IvyUtil.createModuleRevisionId(org, name, branch, rev, extraAttributes);
+        ModuleRevisionId dynamicId;
+        if (!decoder.readBoolean()) {
+            dynamicId = IvyUtil.createModuleRevisionId(org, name, branch, rev, extraAttributes, false);
+        } else {
+            String branchConstraint = decoder.readNullableString();
+            String revConstraint = decoder.readString();
+            if (branchConstraint == null) {
+                dynamicId = IvyUtil.createModuleRevisionId(org, name, null, revConstraint, extraAttributes, false);
+            } else {
+                dynamicId = IvyUtil.createModuleRevisionId(org, name, branchConstraint, revConstraint, extraAttributes);
+            }
+        }
+        boolean force = decoder.readBoolean();
+        boolean changing = decoder.readBoolean();
+        boolean transitive = decoder.readBoolean();
+        DefaultDependencyDescriptor dd = new DefaultDependencyDescriptor(md, revId, dynamicId, force, changing, transitive);
+
+        int mappingCount = decoder.readSmallInt();
+        for (int i = 0; i < mappingCount; i++) {
+            String moduleConfiguration = decoder.readString();
+            for (String dependencyConfiguration : readStrings(decoder)) {
+                dd.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+            }
+        }
+
+        int artifactCount = decoder.readSmallInt();
+        for (int i = 0; i < artifactCount; i++) {
+            String artifactName = decoder.readString();
+            String type = decoder.readString();
+            String ext = decoder.readNullableString();
+            String[] configurations = readStrings(decoder);
+            Map<String, String> artifactAttributes = readStringMap(decoder);
+            DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dd, artifactName, type, ext, null, artifactAttributes);
+            for (String configuration : configurations) {
+                artifact.addConfiguration(configuration);
+                dd.addDependencyArtifact(configuration, artifact);
+            }
+        }
+        for (IncludeRule rule : readIncludeRules(decoder)) {
+            for (String configuration : rule.getConfigurations()) {
+                dd.addIncludeRule(configuration, rule);
+            }
+        }
+        for (ExcludeRule rule : readExcludeRules(decoder)) {
+            for (String configuration : rule.getConfigurations()) {
+                dd.addExcludeRule(configuration, rule);
+            }
+        }
+        return dd;
+    }
+
+    private Map<String, List<String>> getConfigMappings(DependencyDescriptor dependency) {
+        if (dependency instanceof DefaultDependencyDescriptor) {
+            // Use the raw mappings, for the same reason as IvyXmlModuleDescriptorWriter does
+            try {
+                return (Map<String, List<String>>) dependencyConfigField.get(dependency);
+            } catch (IllegalAccessException e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+        }
+        String[] moduleConfigurations = dependency.getModuleConfigurations();
+        Map<String, List<String>> configMappings = new HashMap<String, List<String>>();
+        for (String moduleConfiguration : moduleConfigurations) {
+            configMappings.put(moduleConfiguration, Arrays.asList(dependency.getDependencyConfigurations(moduleConfigurations)));
+        }
+        return configMappings;
+    }
+
+    private void writeExcludeRules(Encoder encoder, ExcludeRule[] rules) throws Exception {
+        encoder.writeSmallInt(rules.length);
+        for (ExcludeRule rule : rules) {
+            writeRule(encoder, rule.getId(), rule.getConfigurations(), rule.getMatcher());
+        }
+    }
+
+    private void writeRule(Encoder encoder, ArtifactId id, String[] configurations, PatternMatcher matcher) throws Exception {
+        encoder.writeString(id.getModuleId().getOrganisation());
+        encoder.writeString(id.getModuleId().getName());
+        encoder.writeString(id.getName());
+        encoder.writeString(id.getType());
+        encoder.writeNullableString(id.getExt());
+        writeStrings(encoder, configurations);
+        encoder.writeString(matcher.getName());
+    }
+
+    private List<IncludeRule> readIncludeRules(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        List<IncludeRule> rules = new ArrayList<IncludeRule>(count);
+        for (int i = 0; i < count; i++) {
+            ArtifactId id = readArtifactId(decoder);
+            String[] configurations = readStrings(decoder);
+            DefaultIncludeRule rule = new DefaultIncludeRule(id, getPatternMatcher(decoder.readString()), Collections.emptyMap());
+            for (String configuration : configurations) {
+                rule.addConfiguration(configuration);
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    private List<ExcludeRule> readExcludeRules(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        List<ExcludeRule> rules = new ArrayList<ExcludeRule>(count);
+        for (int i = 0; i < count; i++) {
+            ArtifactId id = readArtifactId(decoder);
+            String[] configurations = readStrings(decoder);
+            DefaultExcludeRule rule = new DefaultExcludeRule(id, getPatternMatcher(decoder.readString()), Collections.emptyMap());
+            for (String configuration : configurations) {
+                rule.addConfiguration(configuration);
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    private ArtifactId readArtifactId(Decoder decoder) throws Exception {
+        String org = decoder.readString();
+        String module = decoder.readString();
+        String name = decoder.readString();
+        String type = decoder.readString();
+        String ext = decoder.readNullableString();
+        return new ArtifactId(IvyUtil.createModuleId(org, module), name, type, ext);
+    }
+
+    private PatternMatcher getPatternMatcher(String name) {
+        PatternMatcher matcher = resolverStrategy.getPatternMatcher(name);
+        if (matcher == null) {
+            throw new IllegalArgumentException("unknown matcher " + name);
+        }
+        return matcher;
+    }
+
+    private static void writeStrings(Encoder encoder, String[] values) throws Exception {
+        encoder.writeSmallInt(values.length);
+        for (String value : values) {
+            encoder.writeString(value);
+        }
+    }
+
+    private static String[] readStrings(Decoder decoder) throws Exception {
+        String[] values = new String[decoder.readSmallInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+
+    private static void writeStringMap(Encoder encoder, Map<String, ?> values) throws Exception {
+        if (values == null) {
+            encoder.writeSmallInt(0);
+            return;
+        }
+        encoder.writeSmallInt(values.size());
+        for (Map.Entry<String, ?> entry : values.entrySet()) {
+            encoder.writeString(entry.getKey());
+            encoder.writeString(entry.getValue().toString());
+        }
+    }
+
+    private static Map<String, String> readStringMap(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> values = new LinkedHashMap<String, String>(count);
+        for (int i = 0; i < count; i++) {
+            values.put(decoder.readString(), decoder.readString());
+        }
+        return values;
+    }
+}
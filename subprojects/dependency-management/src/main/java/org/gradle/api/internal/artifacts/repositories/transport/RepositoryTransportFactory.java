@@ -18,8 +18,10 @@ package org.gradle.api.internal.artifacts.repositories.transport;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.artifacts.repositories.PasswordCredentials;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.resource.cached.CachedExternalResourceIndex;
 import org.gradle.internal.resource.transport.file.FileTransport;
+import org.gradle.internal.resource.transport.http.HttpConnectionPool;
 import org.gradle.internal.resource.transport.http.HttpTransport;
 import org.gradle.internal.resource.transport.sftp.SftpClientFactory;
 import org.gradle.internal.resource.transport.sftp.SftpTransport;
@@ -27,34 +29,43 @@ import org.gradle.api.internal.file.TemporaryFileProvider;
 import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.util.BuildCommencedTimeProvider;
 import org.gradle.util.WrapUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashSet;
 import java.util.Set;
 
-public class RepositoryTransportFactory {
+public class RepositoryTransportFactory implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryTransportFactory.class);
+
     private final TemporaryFileProvider temporaryFileProvider;
     private final CachedExternalResourceIndex<String> cachedExternalResourceIndex;
     private final ProgressLoggerFactory progressLoggerFactory;
     private final BuildCommencedTimeProvider timeProvider;
     private final SftpClientFactory sftpClientFactory;
     private final CacheLockingManager cacheLockingManager;
+    private final HttpConnectionPool httpConnectionPool;
+    private final HttpConnectionPool.Statistics httpConnectionsAtStart;
 
     public RepositoryTransportFactory(ProgressLoggerFactory progressLoggerFactory,
                                       TemporaryFileProvider temporaryFileProvider,
                                       CachedExternalResourceIndex<String> cachedExternalResourceIndex,
                                       BuildCommencedTimeProvider timeProvider,
                                       SftpClientFactory sftpClientFactory,
-                                      CacheLockingManager cacheLockingManager) {
+                                      CacheLockingManager cacheLockingManager,
+                                      HttpConnectionPool httpConnectionPool) {
         this.progressLoggerFactory = progressLoggerFactory;
         this.temporaryFileProvider = temporaryFileProvider;
         this.cachedExternalResourceIndex = cachedExternalResourceIndex;
         this.timeProvider = timeProvider;
         this.sftpClientFactory = sftpClientFactory;
         this.cacheLockingManager = cacheLockingManager;
+        this.httpConnectionPool = httpConnectionPool;
+        this.httpConnectionsAtStart = httpConnectionPool.getStatistics();
     }
 
     private RepositoryTransport createHttpTransport(String name, PasswordCredentials credentials) {
-        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, cacheLockingManager);
+        return new HttpTransport(name, convertPasswordCredentials(credentials), progressLoggerFactory, temporaryFileProvider, cachedExternalResourceIndex, timeProvider, cacheLockingManager, httpConnectionPool);
     }
 
     private RepositoryTransport createFileTransport(String name) {
@@ -90,4 +101,12 @@ public class RepositoryTransportFactory {
         }
         throw new InvalidUserDataException("You cannot mix different URL schemes for a single repository. Please declare separate repositories.");
     }
+
+    public void stop() {
+        HttpConnectionPool.Statistics statistics = httpConnectionPool.getStatistics().since(httpConnectionsAtStart);
+        if (statistics.getConnectionsOpened() > 0 || statistics.getConnectionsReused() > 0) {
+            LOGGER.info("HTTP connections used by this build: {} opened, {} reused.", statistics.getConnectionsOpened(), statistics.getConnectionsReused());
+        }
+        httpConnectionPool.closeIdleConnections();
+    }
 }
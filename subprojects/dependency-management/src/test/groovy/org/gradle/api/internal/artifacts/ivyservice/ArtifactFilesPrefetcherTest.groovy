@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.ArtifactResolveException
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArraySet
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class ArtifactFilesPrefetcherTest extends Specification {
+    def cacheLockingManager = Mock(CacheLockingManager)
+    def executorFactory = new DefaultExecutorFactory()
+    def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(_) >> Stub(ProgressLogger)
+    }
+    def resolved = new CopyOnWriteArraySet<ResolvedArtifact>()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "resolves files of artifacts concurrently while the artifact cache is released"() {
+        def prefetcher = new ArtifactFilesPrefetcher(cacheLockingManager, executorFactory, progressLoggerFactory, 4)
+        def allStarted = new CountDownLatch(4)
+        def artifacts = (1..4).collect { artifact(allStarted) }
+
+        when:
+        prefetcher.prefetch(artifacts)
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+
+        and:
+        resolved == artifacts as Set
+    }
+
+    def "ignores failures to resolve artifacts"() {
+        def prefetcher = new ArtifactFilesPrefetcher(cacheLockingManager, executorFactory, progressLoggerFactory, 2)
+        def broken = Mock(ResolvedArtifact)
+        def artifacts = [broken, artifact(), artifact()]
+
+        when:
+        prefetcher.prefetch(artifacts)
+
+        then:
+        1 * cacheLockingManager.longRunningOperation(_, _ as Runnable) >> { String description, Runnable action -> action.run() }
+        1 * broken.getFile() >> { throw new ArtifactResolveException("broken") }
+
+        and:
+        resolved == [artifacts[1], artifacts[2]] as Set
+    }
+
+    def "does nothing when concurrent downloads are disabled"() {
+        def prefetcher = new ArtifactFilesPrefetcher(cacheLockingManager, executorFactory, progressLoggerFactory, 1)
+        def artifact1 = Mock(ResolvedArtifact)
+        def artifact2 = Mock(ResolvedArtifact)
+
+        when:
+        prefetcher.prefetch([artifact1, artifact2])
+
+        then:
+        0 * _
+    }
+
+    def artifact(CountDownLatch allStarted = null) {
+        def artifact = Stub(ResolvedArtifact)
+        artifact.getFile() >> {
+            if (allStarted != null) {
+                allStarted.countDown()
+                assert allStarted.await(20, TimeUnit.SECONDS)
+            }
+            resolved << artifact
+            return new File("artifact.jar")
+        }
+        return artifact
+    }
+}
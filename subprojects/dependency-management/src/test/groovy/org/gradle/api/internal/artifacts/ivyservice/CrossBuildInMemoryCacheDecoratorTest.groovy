@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.cache.internal.FileLock
+import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
+import org.gradle.messaging.serialize.BaseSerializerFactory
+import spock.lang.Specification
+
+class CrossBuildInMemoryCacheDecoratorTest extends Specification {
+    def decorator = new CrossBuildInMemoryCacheDecorator(100)
+    def target = Mock(MultiProcessSafePersistentIndexedCache)
+    def serializer = BaseSerializerFactory.STRING_SERIALIZER
+
+    def "caches result from backing cache"() {
+        given:
+        def cache = decorator.decorate("path/module-versions.bin", "module-versions", serializer, target)
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "result"
+        1 * target.get("key") >> "result"
+        0 * target._
+
+        when:
+        result = cache.get("key")
+
+        then:
+        result == "result"
+        0 * target._
+    }
+
+    def "caches result of putting item"() {
+        given:
+        def cache = decorator.decorate("path/module-versions.bin", "module-versions", serializer, target)
+
+        when:
+        cache.put("key", "value")
+
+        then:
+        1 * target.put("key", "value")
+
+        when:
+        def result = cache.get("key")
+
+        then:
+        result == "value"
+        0 * target._
+    }
+
+    def "reuses cached entries in a later build when the cache has not been updated by another process"() {
+        def state = Stub(FileLock.State)
+        state.hasBeenUpdatedSince(_) >> false
+
+        given:
+        def cache = decorator.decorate("path/module-versions.bin", "module-versions", serializer, target)
+        cache.onStartWork("build 1", state)
+
+        when:
+        cache.get("key")
+        cache.onEndWork(state)
+
+        then:
+        1 * target.get("key") >> "result"
+
+        when:
+        def nextCache = decorator.decorate("path/module-versions.bin", "module-versions", serializer, target)
+        nextCache.onStartWork("build 2", state)
+        def result = nextCache.get("key")
+
+        then:
+        result == "result"
+        0 * target._
+    }
+
+    def "discards cached entries when the cache has been updated by another process"() {
+        def state = Stub(FileLock.State)
+        def updatedState = Stub(FileLock.State)
+        updatedState.hasBeenUpdatedSince(state) >> true
+
+        given:
+        def cache = decorator.decorate("path/module-versions.bin", "module-versions", serializer, target)
+        cache.onStartWork("build 1", state)
+
+        when:
+        cache.get("key")
+        cache.onEndWork(state)
+
+        then:
+        1 * target.get("key") >> "result"
+
+        when:
+        cache.onStartWork("build 2", updatedState)
+        def result = cache.get("key")
+
+        then:
+        result == "new result"
+        1 * target.get("key") >> "new result"
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve
+
+import org.gradle.internal.component.model.DependencyMetaData
+import org.gradle.internal.resolve.ModuleVersionResolveException
+import org.gradle.internal.resolve.result.BuildableModuleComponentVersionSelectionResolveResult
+import org.gradle.internal.resolve.result.DefaultBuildableModuleComponentVersionSelectionResolveResult
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.gradle.api.internal.artifacts.DefaultModuleVersionSelector.newSelector
+
+class ModuleVersionListingCoordinatorTest extends ConcurrentSpec {
+    def coordinator = new ModuleVersionListingCoordinator()
+    def listings = new AtomicInteger()
+
+    def "lists module using the repository"() {
+        def result = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+
+        when:
+        coordinator.listModuleVersions("repo", dependency("group", "module"), result, repository { r ->
+            r.attempted("http://repo/group/module/")
+            r.listed(["1.0", "1.1"])
+        })
+
+        then:
+        result.state == BuildableModuleComponentVersionSelectionResolveResult.State.Listed
+        result.versions.versions*.version as Set == ["1.0", "1.1"] as Set
+        result.attempted == ["http://repo/group/module/"]
+        listings.get() == 1
+    }
+
+    def "thread waits for listing of the same module in the same repository by another thread"() {
+        def result1 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def result2 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def access = repository { r ->
+            instant.listing
+            thread.block()
+            r.attempted("http://repo/group/module/")
+            r.listed(["1.0"])
+        }
+
+        when:
+        async {
+            start {
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result1, access)
+            }
+            start {
+                thread.blockUntil.listing
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result2, access)
+            }
+        }
+
+        then:
+        listings.get() == 1
+        result2.state == BuildableModuleComponentVersionSelectionResolveResult.State.Listed
+        result2.versions.versions*.version == ["1.0"]
+        result2.authoritative
+        result2.attempted == ["http://repo/group/module/"]
+    }
+
+    def "thread receives failure of listing made by another thread"() {
+        def failure = new ModuleVersionResolveException(newSelector("group", "module", "1.+"), "broken")
+        def result1 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def result2 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def access = repository { r ->
+            instant.listing
+            thread.block()
+            r.failed(failure)
+        }
+
+        when:
+        async {
+            start {
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result1, access)
+            }
+            start {
+                thread.blockUntil.listing
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result2, access)
+            }
+        }
+
+        then:
+        listings.get() == 1
+        result2.state == BuildableModuleComponentVersionSelectionResolveResult.State.Failed
+        result2.failure == failure
+    }
+
+    def "thread lists module itself when listing by another thread produces no result"() {
+        def result1 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def result2 = new DefaultBuildableModuleComponentVersionSelectionResolveResult()
+        def access = repository { r ->
+            if (listings.get() == 1) {
+                instant.listing
+                thread.block()
+            } else {
+                r.listed(["1.0"])
+            }
+        }
+
+        when:
+        async {
+            start {
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result1, access)
+            }
+            start {
+                thread.blockUntil.listing
+                coordinator.listModuleVersions("repo", dependency("group", "module"), result2, access)
+            }
+        }
+
+        then:
+        listings.get() == 2
+        result1.state == BuildableModuleComponentVersionSelectionResolveResult.State.Unknown
+        result2.state == BuildableModuleComponentVersionSelectionResolveResult.State.Listed
+    }
+
+    def "lists different modules and repositories concurrently"() {
+        def access = repository { r ->
+            instant."listing${listings.get()}"
+            thread.blockUntil.listing3
+            r.listed(["1.0"])
+        }
+
+        when:
+        async {
+            start {
+                coordinator.listModuleVersions("repo", dependency("group", "module1"), new DefaultBuildableModuleComponentVersionSelectionResolveResult(), access)
+            }
+            start {
+                coordinator.listModuleVersions("repo", dependency("group", "module2"), new DefaultBuildableModuleComponentVersionSelectionResolveResult(), access)
+            }
+            start {
+                coordinator.listModuleVersions("other", dependency("group", "module1"), new DefaultBuildableModuleComponentVersionSelectionResolveResult(), access)
+            }
+        }
+
+        then:
+        listings.get() == 3
+    }
+
+    def dependency(String group, String module) {
+        return Stub(DependencyMetaData) {
+            getRequested() >> newSelector(group, module, "1.+")
+        }
+    }
+
+    def repository(Closure listing) {
+        return [listModuleVersions: { DependencyMetaData dependency, BuildableModuleComponentVersionSelectionResolveResult result ->
+            listings.incrementAndGet()
+            listing.call(result)
+        }] as ModuleComponentRepositoryAccess
+    }
+}
@@ -848,4 +848,68 @@ class PomReaderTest extends AbstractPomReaderTest {
         where:
         packaging << ['pom', 'jar', 'ejb', 'war', 'ear', 'rar', 'par']
     }
+
+    def "parse POM using entities and namespaces"() {
+        when:
+        pomFile << """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance">
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <description>Copyright &copy; <![CDATA[Some & Co]]><!-- comment --> &amp; others</description>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+
+        then:
+        pomReader.groupId == 'group-one'
+        pomReader.description == 'Copyright \u00a9 Some & Co & others'
+    }
+
+    def "ignores sections of POM that do not contribute to the module meta-data"() {
+        when:
+        pomFile << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <build>
+        <plugins>
+            <plugin>
+                <groupId>group-two</groupId>
+                <artifactId>artifact-two</artifactId>
+                <dependencies>
+                    <dependency>
+                        <groupId>group-three</groupId>
+                        <artifactId>artifact-three</artifactId>
+                        <version>version-three</version>
+                    </dependency>
+                </dependencies>
+            </plugin>
+        </plugins>
+    </build>
+    <distributionManagement>
+        <repository>
+            <id>releases</id>
+        </repository>
+    </distributionManagement>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+        pomReader = new PomReader(locallyAvailableExternalResource)
+        MavenDependencyKey keyGroupTwo = new MavenDependencyKey('group-two', 'artifact-two', 'jar', null)
+
+        then:
+        pomReader.dependencies.size() == 1
+        assertResolvedPomDependency(keyGroupTwo, 'version-two')
+        pomReader.relocation == null
+    }
 }
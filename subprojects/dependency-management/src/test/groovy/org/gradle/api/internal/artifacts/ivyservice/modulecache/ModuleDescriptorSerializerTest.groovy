@@ -0,0 +1,244 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.DefaultExcludeRule
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.apache.ivy.core.module.id.ArtifactId
+import org.apache.ivy.core.module.id.ModuleId
+import org.apache.ivy.plugins.matcher.ExactPatternMatcher
+import org.apache.ivy.plugins.matcher.GlobPatternMatcher
+import org.apache.ivy.plugins.matcher.RegexpPatternMatcher
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.GradlePomModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.messaging.serialize.SerializerSpec
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+
+class ModuleDescriptorSerializerTest extends SerializerSpec {
+    @Rule TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider()
+
+    ResolverStrategy resolverStrategy = Stub()
+    def serializer = new ModuleDescriptorSerializer(resolverStrategy)
+
+    def setup() {
+        resolverStrategy.getPatternMatcher("exact") >> ExactPatternMatcher.INSTANCE
+        resolverStrategy.getPatternMatcher("glob") >> GlobPatternMatcher.INSTANCE
+        resolverStrategy.getPatternMatcher("regexp") >> RegexpPatternMatcher.INSTANCE
+    }
+
+    def "serializes minimal descriptor"() {
+        def md = parse """
+<ivy-module version="2.0">
+    <info organisation="myorg" module="mymodule" revision="myrev"/>
+</ivy-module>
+"""
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.moduleRevisionId == md.moduleRevisionId
+        result.status == "integration"
+        result.configurationsNames == ["default"] as String[]
+        result.getArtifacts("default")*.name == ["mymodule"]
+        result.dependencies.length == 0
+    }
+
+    def "serializes module info, configurations and publications"() {
+        def md = parse """
+<ivy-module version="2.0" xmlns:e="http://ant.apache.org/ivy/extra">
+    <info organisation="myorg" module="mymodule" branch="trunk" revision="myrev" status="release" publication="20041101110000" e:buildNr="815">
+        <license name="Apache" url="http://www.apache.org/licenses/LICENSE-2.0"/>
+        <description homepage="http://example.com">Some module</description>
+        <e:extra>some value</e:extra>
+    </info>
+    <configurations>
+        <conf name="compile" description="compile classpath"/>
+        <conf name="runtime" extends="compile" transitive="false"/>
+        <conf name="private" visibility="private" deprecated="20050101"/>
+    </configurations>
+    <publications>
+        <artifact name="mymodule" type="jar" ext="jar" conf="compile,runtime"/>
+        <artifact name="mymodule-sources" type="source" ext="zip" conf="private" e:classifier="sources"/>
+    </publications>
+</ivy-module>
+"""
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.moduleRevisionId == md.moduleRevisionId
+        result.moduleRevisionId.branch == "trunk"
+        result.qualifiedExtraAttributes == md.qualifiedExtraAttributes
+        result.extraAttributes.buildNr == "815"
+        result.status == "release"
+        result.publicationDate == md.publicationDate
+        result.licenses*.name == ["Apache"]
+        result.licenses*.url == ["http://www.apache.org/licenses/LICENSE-2.0"]
+        result.homePage == "http://example.com"
+        result.description == "Some module"
+        result.extraInfo == [(new NamespaceId("http://ant.apache.org/ivy/extra", "extra")): "some value"]
+
+        result.configurations*.name == ["compile", "runtime", "private"]
+        result.getConfiguration("compile").description == "compile classpath"
+        result.getConfiguration("runtime").extends == ["compile"] as String[]
+        !result.getConfiguration("runtime").transitive
+        result.getConfiguration("private").visibility.toString() == "private"
+        result.getConfiguration("private").deprecated == "20050101"
+
+        result.getArtifacts("compile")*.name == ["mymodule"]
+        result.getArtifacts("runtime")*.name == ["mymodule"]
+        result.getArtifacts("private")*.name == ["mymodule-sources"]
+        result.getArtifacts("private")[0].type == "source"
+        result.getArtifacts("private")[0].ext == "zip"
+        result.getArtifacts("private")[0].qualifiedExtraAttributes == md.getArtifacts("private")[0].qualifiedExtraAttributes
+    }
+
+    def "serializes dependencies and exclude rules"() {
+        def md = parse """
+<ivy-module version="2.0">
+    <info organisation="myorg" module="mymodule" revision="myrev"/>
+    <configurations>
+        <conf name="compile"/>
+        <conf name="runtime" extends="compile"/>
+    </configurations>
+    <dependencies>
+        <dependency org="org1" name="mod1" rev="1.0" revConstraint="1.+" conf="compile->default;runtime->*,@"/>
+        <dependency org="org2" name="mod2" rev="2.0" force="true" changing="true" transitive="false" conf="runtime->runtime">
+            <artifact name="art2" type="zip" ext="zip" conf="runtime"/>
+            <include name="art2" type="*" ext="*" conf="runtime" matcher="glob"/>
+            <exclude org="org3" module="mod3" conf="runtime" matcher="regexp"/>
+        </dependency>
+        <exclude org="org4" module="mod4" artifact="*" type="*" ext="*" conf="compile" matcher="exact"/>
+    </dependencies>
+</ivy-module>
+"""
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.dependencies.length == 2
+
+        def dep1 = result.dependencies[0]
+        dep1.dependencyRevisionId == md.dependencies[0].dependencyRevisionId
+        dep1.dynamicConstraintDependencyRevisionId.revision == "1.+"
+        dep1.moduleConfigurations == ["compile", "runtime"] as String[]
+        dep1.getDependencyConfigurations("compile") == ["default"] as String[]
+        dep1.getDependencyConfigurations("runtime") == md.dependencies[0].getDependencyConfigurations("runtime")
+        dep1.transitive
+        !dep1.force
+        !dep1.changing
+
+        def dep2 = result.dependencies[1]
+        dep2.dependencyRevisionId.toString() == "org2#mod2;2.0"
+        dep2.dynamicConstraintDependencyRevisionId == dep2.dependencyRevisionId
+        dep2.force
+        dep2.changing
+        !dep2.transitive
+        dep2.getDependencyConfigurations("runtime") == ["runtime"] as String[]
+        dep2.getDependencyArtifacts("runtime")*.name == ["art2"]
+        dep2.getDependencyArtifacts("runtime")[0].type == "zip"
+        dep2.getIncludeRules("runtime")*.id*.name == ["art2"]
+        dep2.getIncludeRules("runtime")[0].matcher == GlobPatternMatcher.INSTANCE
+        dep2.getExcludeRules("runtime")*.id*.moduleId*.toString() == ["org3#mod3"]
+        dep2.getExcludeRules("runtime")[0].matcher == RegexpPatternMatcher.INSTANCE
+
+        result.allExcludeRules.length == 1
+        result.allExcludeRules[0].id.moduleId.toString() == "org4#mod4"
+        result.allExcludeRules[0].configurations == ["compile"] as String[]
+        result.allExcludeRules[0].matcher == ExactPatternMatcher.INSTANCE
+    }
+
+    def "serializes dependency artifacts and exclude rules of descriptor read from a POM"() {
+        def md = parsePom """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>version-two</version>
+            <classifier>classifier-two</classifier>
+            <exclusions>
+                <exclusion>
+                    <groupId>group-three</groupId>
+                    <artifactId>artifact-three</artifactId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+</project>
+"""
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        def original = md.dependencies[0]
+        def dep = result.dependencies[0]
+        dep.moduleConfigurations == original.moduleConfigurations
+        original.moduleConfigurations.each { conf ->
+            assert dep.getDependencyArtifacts(conf)*.name == original.getDependencyArtifacts(conf)*.name
+            assert dep.getDependencyArtifacts(conf)*.qualifiedExtraAttributes == original.getDependencyArtifacts(conf)*.qualifiedExtraAttributes
+            assert dep.getExcludeRules(conf)*.id*.moduleId == original.getExcludeRules(conf)*.id*.moduleId
+        }
+        dep.getDependencyArtifacts("compile")*.name == ["artifact-two"]
+        dep.getDependencyArtifacts("compile")[0].extraAttributes.classifier == "classifier-two"
+        dep.getExcludeRules("compile")*.id*.moduleId*.toString() == ["group-three#artifact-three"]
+        dep.getExcludeRules("runtime")*.id*.moduleId*.toString() == ["group-three#artifact-three"]
+    }
+
+    def "serializes module exclude rule without configurations as applying to all configurations"() {
+        DefaultModuleDescriptor md = parse """
+<ivy-module version="2.0">
+    <info organisation="myorg" module="mymodule" revision="myrev"/>
+    <configurations>
+        <conf name="compile"/>
+        <conf name="runtime" extends="compile"/>
+    </configurations>
+</ivy-module>
+"""
+        md.addExcludeRule(new DefaultExcludeRule(new ArtifactId(new ModuleId("org4", "mod4"), "*", "*", "*"), ExactPatternMatcher.INSTANCE, [:]))
+
+        when:
+        def result = serialize(md, serializer)
+
+        then:
+        result.allExcludeRules.length == 1
+        result.allExcludeRules[0].configurations == ["compile", "runtime"] as String[]
+    }
+
+    private ModuleDescriptor parsePom(String text) {
+        def file = temporaryFolder.file("pom.xml") << text
+        return new GradlePomModuleDescriptorParser().parseMetaData(Stub(DescriptorParseContext), file, false).descriptor
+    }
+
+    private ModuleDescriptor parse(String text) {
+        def file = temporaryFolder.file("ivy.xml") << text
+        return new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), file, false).descriptor
+    }
+}
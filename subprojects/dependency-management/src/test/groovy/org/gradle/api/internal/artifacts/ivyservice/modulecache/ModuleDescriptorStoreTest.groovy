@@ -20,9 +20,7 @@ import org.apache.ivy.core.module.descriptor.ModuleDescriptor
 import org.apache.ivy.core.module.id.ModuleRevisionId
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier
 import org.gradle.internal.resolve.resolver.DependencyToComponentResolver
-import org.gradle.api.internal.artifacts.ivyservice.IvyModuleDescriptorWriter
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
-import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
 import org.gradle.internal.resource.local.PathKeyFileStore
 import org.gradle.internal.resource.local.LocallyAvailableResource
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -38,13 +36,12 @@ class ModuleDescriptorStoreTest extends Specification {
     ModuleComponentRepository repository = Mock()
     LocallyAvailableResource fileStoreEntry = Mock()
     ModuleDescriptor moduleDescriptor = Mock()
-    IvyModuleDescriptorWriter ivyModuleDescriptorWriter = Mock()
-    IvyXmlModuleDescriptorParser ivyXmlModuleDescriptorParser = Mock()
+    ModuleDescriptorSerializer serializer = Mock()
     ModuleComponentIdentifier moduleComponentIdentifier = Mock()
     def resolver = Mock(DependencyToComponentResolver)
 
     def setup() {
-        store = new ModuleDescriptorStore(pathKeyFileStore, ivyModuleDescriptorWriter, ivyXmlModuleDescriptorParser);
+        store = new ModuleDescriptorStore(pathKeyFileStore, serializer);
         _ * repository.getId() >> "repositoryId"
         _ * moduleComponentIdentifier.group >> "org.test"
         _ * moduleComponentIdentifier.module >> "testArtifact"
@@ -54,7 +51,7 @@ class ModuleDescriptorStoreTest extends Specification {
 
     def "getModuleDescriptorFile returns null for not cached descriptors"() {
         when:
-        pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
         then:
         null == store.getModuleDescriptor(repository, moduleComponentIdentifier)
     }
@@ -63,7 +60,7 @@ class ModuleDescriptorStoreTest extends Specification {
         when:
         store.getModuleDescriptor(repository, moduleComponentIdentifier);
         then:
-        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/ivy.xml") >> null
+        1 * pathKeyFileStore.get("org.test/testArtifact/1.0/repositoryId/descriptor.bin") >> null
     }
 
     def "putModuleDescriptor uses PathKeyFileStore to write file"() {
@@ -75,9 +72,9 @@ class ModuleDescriptorStoreTest extends Specification {
         when:
         store.putModuleDescriptor(repository, moduleDescriptor);
         then:
-        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/ivy.xml", _) >> { path, action ->
+        1 * pathKeyFileStore.add("org.test/testArtifact/1.0/repositoryId/descriptor.bin", _) >> { path, action ->
             action.execute(descriptorFile); fileStoreEntry
         };
-        1 * ivyModuleDescriptorWriter.write(moduleDescriptor, descriptorFile)
+        1 * serializer.write(_, moduleDescriptor)
     }
 }
\ No newline at end of file
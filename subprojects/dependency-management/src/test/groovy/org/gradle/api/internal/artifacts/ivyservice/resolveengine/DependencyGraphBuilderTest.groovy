@@ -30,6 +30,7 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactFilesPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
@@ -88,7 +89,7 @@ class DependencyGraphBuilderTest extends Specification {
     private DefaultLenientConfiguration resolve() {
         def results = new DefaultResolvedConfigurationBuilder(new TransientConfigurationResultsBuilder(new DummyBinaryStore(), new DummyStore()))
         builder.resolve(configuration, resultBuilder, results)
-        new DefaultLenientConfiguration(configuration, results, Stub(CacheLockingManager))
+        new DefaultLenientConfiguration(configuration, results, Stub(CacheLockingManager), Stub(ArtifactFilesPrefetcher))
     }
 
     def "does not resolve a given module selector more than once"() {
@@ -17,11 +17,12 @@
 package org.gradle.api.internal.artifacts.repositories.transport
 
 import org.gradle.api.InvalidUserDataException
+import org.gradle.internal.resource.transport.http.HttpConnectionPool
 import spock.lang.Specification
 
 class RepositoryTransportFactoryTest extends Specification {
 
-    def repositoryTransportFactory = new RepositoryTransportFactory(null, null, null, null, null, null)
+    def repositoryTransportFactory = new RepositoryTransportFactory(null, null, null, null, null, null, Stub(HttpConnectionPool))
 
     def "cannot create a transport for url with unsupported scheme"() {
         when:
@@ -16,10 +16,12 @@
 
 package org.gradle.integtests
 
+import groovy.io.FileType
 import org.gradle.api.internal.artifacts.ivyservice.CacheLayout
 import org.gradle.groovy.scripts.ScriptSource
 import org.gradle.groovy.scripts.UriScriptSource
 import org.gradle.integtests.fixtures.AbstractIntegrationTest
+import org.gradle.internal.hash.HashUtil
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.server.http.MavenHttpRepository
 import org.gradle.test.fixtures.server.http.HttpServer
@@ -38,8 +40,8 @@ public class CacheProjectIntegrationTest extends AbstractIntegrationTest {
     TestFile projectDir
     TestFile userHomeDir
     TestFile buildFile
-    TestFile propertiesFile
-    TestFile classFile
+    TestFile cachesDir
+    String scriptClassName
     TestFile artifactsCache
 
     MavenHttpRepository repo
@@ -55,8 +57,8 @@ public class CacheProjectIntegrationTest extends AbstractIntegrationTest {
         userHomeDir = executer.gradleUserHomeDir
         buildFile = projectDir.file('build.gradle')
         ScriptSource source = new UriScriptSource("build file", buildFile)
-        propertiesFile = userHomeDir.file("caches/$version/scripts/$source.className/ProjectScript/no_buildscript/cache.properties")
-        classFile = userHomeDir.file("caches/$version/scripts/$source.className/ProjectScript/no_buildscript/classes/${source.className}.class")
+        cachesDir = userHomeDir.file("caches/$version")
+        scriptClassName = source.className
         artifactsCache = projectDir.file(".gradle/$version/taskArtifacts/taskArtifacts.bin")
 
         repo = new MavenHttpRepository(server, mavenRepo)
@@ -71,18 +73,18 @@ public class CacheProjectIntegrationTest extends AbstractIntegrationTest {
     public void "caches compiled build script"() {
         createLargeBuildScript()
         testBuild("hello1", "Hello 1")
-        TestFile.Snapshot classFileSnapshot = classFile.snapshot()
+        Map<File, String> classFileSnapshots = snapshotScriptClassFiles()
 
         testBuild("hello2", "Hello 2")
-        classFile.assertHasNotChangedSince(classFileSnapshot)
+        assertScriptClassFilesHaveNotChangedSince(classFileSnapshots)
 
         modifyLargeBuildScript()
         testBuild("newTask", "I am new")
-        classFile.assertHasChangedSince(classFileSnapshot)
-        classFileSnapshot = classFile.snapshot()
+        assertScriptHasBeenCompiledSince(classFileSnapshots)
+        classFileSnapshots = snapshotScriptClassFiles()
 
         testBuild("newTask", "I am new", "--recompile-scripts")
-        classFile.assertHasChangedSince(classFileSnapshot)
+        assertScriptHasBeenCompiledSince(classFileSnapshots)
     }
 
     @Test
@@ -136,11 +138,32 @@ public class CacheProjectIntegrationTest extends AbstractIntegrationTest {
     private def testBuild(String taskName, String expected, String... args) {
         executer.inDirectory(projectDir).withTasks(taskName).withArguments(args).run()
         assertEquals(expected, projectDir.file(TEST_FILE).text)
-        classFile.assertIsFile()
-        propertiesFile.assertIsFile()
+        assert !snapshotScriptClassFiles().isEmpty()
         artifactsCache.assertIsFile()
     }
 
+    /**
+     * Returns the modification time and hash of each compiled class of the build script, wherever they are kept in the caches directory.
+     */
+    private Map<File, String> snapshotScriptClassFiles() {
+        Map<File, String> snapshots = [:]
+        cachesDir.eachFileRecurse(FileType.FILES) { File file ->
+            if (file.name == "${scriptClassName}.class") {
+                snapshots[file] = "${file.lastModified()}:${HashUtil.sha1(file).asHexString()}".toString()
+            }
+        }
+        return snapshots
+    }
+
+    private void assertScriptClassFilesHaveNotChangedSince(Map<File, String> snapshots) {
+        assert snapshotScriptClassFiles() == snapshots
+    }
+
+    private void assertScriptHasBeenCompiledSince(Map<File, String> snapshots) {
+        Map<File, String> current = snapshotScriptClassFiles()
+        assert current.any { file, snapshot -> snapshots[file] != snapshot }
+    }
+
     // We once ran into a cache problem under windows, which was not reproducible with small build scripts. Therefore we
     // create a larger one here.
 
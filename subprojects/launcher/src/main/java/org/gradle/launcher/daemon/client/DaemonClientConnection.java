@@ -60,6 +60,7 @@ public class DaemonClientConnection implements Connection<Object> {
             dispatchLock.lock();
             try {
                 connection.dispatch(message);
+                connection.flush();
             } finally {
                 dispatchLock.unlock();
             }
@@ -15,6 +15,7 @@
  */
 package org.gradle.launcher.daemon.server;
 
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.initialization.GradleLauncherFactory;
@@ -80,7 +81,7 @@ public class DaemonServices extends DefaultServiceRegistry {
     }
 
     protected DaemonHealthServices createDaemonHealthServices() {
-        return new DefaultDaemonHealthServices();
+        return new DefaultDaemonHealthServices(get(InMemoryTaskArtifactCache.class));
     }
 
     protected Daemon createDaemon() {
@@ -19,6 +19,7 @@ package org.gradle.launcher.daemon.server;
 import org.gradle.internal.concurrent.Synchronizer;
 import org.gradle.logging.internal.OutputEvent;
 import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.RemoteConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -29,9 +30,9 @@ public class SynchronizedDispatchConnection<T> implements Connection<T> {
     private static final Logger LOGGER = LoggerFactory.getLogger(SynchronizedDispatchConnection.class);
     
     private final Synchronizer sync = new Synchronizer();
-    private final Connection<T> delegate;
+    private final RemoteConnection<T> delegate;
 
-    public SynchronizedDispatchConnection(Connection<T> delegate) {
+    public SynchronizedDispatchConnection(RemoteConnection<T> delegate) {
         this.delegate = delegate;
     }
     
@@ -47,6 +48,7 @@ public class SynchronizedDispatchConnection<T> implements Connection<T> {
         sync.synchronize(new Runnable() {
             public void run() {
                 delegate.dispatch(message);
+                delegate.flush();
             }
         });
     }
@@ -49,6 +49,9 @@ class DaemonClientConnectionTest extends Specification {
 
         then:
         1 * delegate.dispatch("foo")
+
+        then:
+        1 * delegate.flush()
         0 * staleAddressDetector._
     }
 
@@ -16,6 +16,8 @@
 
 package org.gradle.launcher.daemon.server.health
 
+import com.google.common.cache.CacheStats
+import org.gradle.api.internal.changedetection.state.InMemoryTaskArtifactCache
 import org.gradle.internal.TimeProvider
 import org.gradle.util.Clock
 import spock.lang.Specification
@@ -25,9 +27,10 @@ class DaemonStatsTest extends Specification {
     def clock = Stub(Clock)
     def time = Stub(TimeProvider)
     def memory = Stub(MemoryInfo)
+    def taskArtifactCache = Stub(InMemoryTaskArtifactCache)
 
     def "consumes first build"() {
-        def stats = new DaemonStats(clock, Stub(TimeProvider), memory)
+        def stats = new DaemonStats(clock, Stub(TimeProvider), memory, taskArtifactCache)
         memory.getCommittedMemory() >> 5000000
         memory.getMaxMemory() >> 10000000
 
@@ -47,7 +50,9 @@ class DaemonStatsTest extends Specification {
         memory.getCommittedMemory() >> 5000000
         memory.getMaxMemory() >> 10000000
 
-        def stats = new DaemonStats(clock, time, memory)
+        taskArtifactCache.getStats() >> new CacheStats(3, 1, 0, 0, 0, 2)
+
+        def stats = new DaemonStats(clock, time, memory, taskArtifactCache)
 
         when:
         stats.buildStarted()
@@ -56,6 +61,6 @@ class DaemonStatsTest extends Specification {
         stats.buildFinished()
 
         then:
-        stats.healthInfo == "Starting 2nd build in daemon [uptime: 3 mins, performance: 98%, memory: 50% of 10.0 MB]"
+        stats.healthInfo == "Starting 2nd build in daemon [uptime: 3 mins, performance: 98%, memory: 50% of 10.0 MB, task history cache: 75% hits, 2 evictions]"
     }
 }
@@ -18,7 +18,7 @@ package org.gradle.messaging.remote.internal.hub
 
 import org.gradle.api.Action
 import org.gradle.messaging.dispatch.Dispatch
-import org.gradle.messaging.remote.internal.Connection
+import org.gradle.messaging.remote.internal.RemoteConnection
 import org.gradle.messaging.remote.internal.hub.protocol.InterHubMessage
 import org.gradle.test.fixtures.concurrent.ConcurrentSpec
 import spock.lang.Timeout
@@ -186,12 +186,15 @@ class MessageHubIntegrationTest extends ConcurrentSpec {
         private final BlockingQueue<InterHubMessage> incomingA = new LinkedBlockingQueue<>()
         private final BlockingQueue<InterHubMessage> incomingB = new LinkedBlockingQueue<>()
 
-        Connection<InterHubMessage> getConnectionA() {
-            return new Connection<InterHubMessage>() {
+        RemoteConnection<InterHubMessage> getConnectionA() {
+            return new RemoteConnection<InterHubMessage>() {
                 void dispatch(InterHubMessage message) {
                     incomingB.put(message)
                 }
 
+                void flush() {
+                }
+
                 InterHubMessage receive() {
                     return incomingA.take()
                 }
@@ -206,12 +209,15 @@ class MessageHubIntegrationTest extends ConcurrentSpec {
             }
         }
 
-        Connection<InterHubMessage> getConnectionB() {
-            return new Connection<InterHubMessage>() {
+        RemoteConnection<InterHubMessage> getConnectionB() {
+            return new RemoteConnection<InterHubMessage>() {
                 void dispatch(InterHubMessage message) {
                     incomingA.put(message)
                 }
 
+                void flush() {
+                }
+
                 InterHubMessage receive() {
                     return incomingB.take()
                 }
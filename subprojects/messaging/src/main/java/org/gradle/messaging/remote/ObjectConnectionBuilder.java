@@ -15,6 +15,7 @@
  */
 package org.gradle.messaging.remote;
 
+import org.gradle.messaging.serialize.SerializerRegistry;
 import org.gradle.messaging.serialize.kryo.StatefulSerializer;
 
 public interface ObjectConnectionBuilder {
@@ -46,8 +47,14 @@ public interface ObjectConnectionBuilder {
     void useParameterSerializer(StatefulSerializer<Object[]> serializer);
 
     /**
-     * Use Java serialization for the parameters of incoming and outgoing method calls, with the specified ClassLoader used to deserialize incoming
-     * method parameters.
+     * Use the specified serializers for incoming and outgoing parameters of the types they can serialize. The parameters of a method call are sent
+     * using Java serialization when one of them cannot be serialized by any of the registered serializers. The peer must register the same
+     * serializers, in the same order.
+     */
+    void useParameterSerializers(SerializerRegistry<Object> serializers);
+
+    /**
+     * Use the specified ClassLoader to deserialize incoming method parameters that were sent using Java serialization.
      *
      * <p>This method is generally not required as the ClassLoader is inferred from the incoming and outgoing types.</p>
      *
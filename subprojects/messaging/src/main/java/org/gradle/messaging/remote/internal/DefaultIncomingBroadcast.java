@@ -85,7 +85,7 @@ public class DefaultIncomingBroadcast implements IncomingBroadcast, Stoppable {
 
     private class IncomingConnectionAction implements Action<ConnectCompletion> {
         public void execute(ConnectCompletion completion) {
-            Connection<Message> connection = completion.create(getClass().getClassLoader());
+            RemoteConnection<Message> connection = completion.create(getClass().getClassLoader());
             hub.addConnection(connection);
         }
     }
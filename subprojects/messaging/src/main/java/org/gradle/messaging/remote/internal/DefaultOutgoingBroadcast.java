@@ -109,7 +109,7 @@ public class DefaultOutgoingBroadcast implements OutgoingBroadcast, Stoppable {
                     lock.unlock();
                 }
 
-                Connection<Message> syncConnection = outgoingConnector.connect(serviceAddress).create(DiscoveryMessage.class.getClassLoader());
+                RemoteConnection<Message> syncConnection = outgoingConnector.connect(serviceAddress).create(DiscoveryMessage.class.getClassLoader());
                 hub.addConnection(syncConnection);
             }
         }
@@ -66,7 +66,7 @@ public class MessageHub implements AsyncStoppable {
     /**
      * Adds an incoming connection. Stops the connection when finished with it.
      */
-    public void addConnection(Connection<Message> connection) {
+    public void addConnection(RemoteConnection<Message> connection) {
         lock.lock();
         try {
             Connection<Message> wrapper = new EndOfStreamConnection(connection);
@@ -169,10 +169,18 @@ public class MessageHub implements AsyncStoppable {
 
     private static class EndOfStreamConnection extends DelegatingConnection<Message> {
         private static final Logger LOGGER = LoggerFactory.getLogger(EndOfStreamConnection.class);
+        private final RemoteConnection<Message> connection;
         boolean incomingFinished;
 
-        private EndOfStreamConnection(Connection<Message> connection) {
+        private EndOfStreamConnection(RemoteConnection<Message> connection) {
             super(connection);
+            this.connection = connection;
+        }
+
+        @Override
+        public void dispatch(Message message) {
+            connection.dispatch(message);
+            connection.flush();
         }
 
         @Override
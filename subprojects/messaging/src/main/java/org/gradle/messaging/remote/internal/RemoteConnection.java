@@ -25,12 +25,20 @@ import org.gradle.api.Nullable;
  */
 public interface RemoteConnection<T> extends Connection<T> {
     /**
-     * {@inheritDoc}
+     * Queues the given message to be sent to the peer on the next {@link #flush()}.
      *
      * @throws MessageIOException On failure to dispatch the message to the peer.
      */
     void dispatch(T message) throws MessageIOException;
 
+    /**
+     * Sends the messages dispatched since the last flush to the peer. Messages are not guaranteed to be sent until this method is called, or the
+     * connection is stopped.
+     *
+     * @throws MessageIOException On failure to send the messages to the peer.
+     */
+    void flush() throws MessageIOException;
+
     /**
      * {@inheritDoc}
      * @throws MessageIOException On failure to receive the message from the peer.
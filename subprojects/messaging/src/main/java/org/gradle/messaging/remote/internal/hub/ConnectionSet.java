@@ -16,7 +16,7 @@
 
 package org.gradle.messaging.remote.internal.hub;
 
-import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.RemoteConnection;
 import org.gradle.messaging.remote.internal.hub.protocol.ConnectionClosed;
 import org.gradle.messaging.remote.internal.hub.protocol.ConnectionEstablished;
 import org.gradle.messaging.remote.internal.hub.protocol.EndOfStream;
@@ -37,7 +37,7 @@ class ConnectionSet {
         this.outgoingQueue = outgoingQueue;
     }
 
-    public ConnectionState add(Connection<InterHubMessage> connection) {
+    public ConnectionState add(RemoteConnection<InterHubMessage> connection) {
         incomingQueue.queue(new ConnectionEstablished(connection));
         EndPointQueue queue = outgoingQueue.newEndpoint();
         ConnectionState state = new ConnectionState(this, connection, queue);
@@ -53,6 +53,18 @@ class ConnectionSet {
         }
     }
 
+    /**
+     * Returns true when there is at least one connection that is still sending outgoing messages.
+     */
+    public boolean hasDispatchingConnection() {
+        for (ConnectionState connection : connections) {
+            if (connection.isDispatching()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public void requestStop() {
         stopping = true;
         maybeStop();
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.remote.internal.hub;
+
+import org.gradle.messaging.serialize.*;
+import org.gradle.messaging.serialize.kryo.StatefulSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes method arguments using the serializers of the given registries. The arguments of a method call are written using Java serialization
+ * only when one of them has a type that no registry can serialize.
+ *
+ * <p>The serializers of the registries are identified by their position, so both ends of a connection must use the same registries, in the same order.
+ */
+public class DefaultMethodArgsSerializer implements StatefulSerializer<Object[]> {
+    private static final Object[] ZERO_ARGS = new Object[0];
+    private static final byte JAVA_SERIALIZED = 0;
+    private static final byte REGISTRY_SERIALIZED = 1;
+    private static final int NULL_ARG = 0;
+    private static final int NO_SERIALIZER = -1;
+
+    private final List<SerializerRegistry<Object>> registries;
+    private final List<Serializer<Object>> serializers;
+    private final StatefulSerializer<Object[]> defaultArgsSerializer;
+
+    public DefaultMethodArgsSerializer(List<SerializerRegistry<Object>> registries, StatefulSerializer<Object[]> defaultArgsSerializer) {
+        this.registries = registries;
+        this.defaultArgsSerializer = defaultArgsSerializer;
+        this.serializers = new ArrayList<Serializer<Object>>(registries.size());
+        for (SerializerRegistry<Object> registry : registries) {
+            serializers.add(registry.build());
+        }
+    }
+
+    public ObjectReader<Object[]> newReader(final Decoder decoder) {
+        final ObjectReader<Object[]> defaultReader = defaultArgsSerializer.newReader(decoder);
+        return new ObjectReader<Object[]>() {
+            public Object[] read() throws Exception {
+                if (decoder.readByte() == JAVA_SERIALIZED) {
+                    return defaultReader.read();
+                }
+                int count = decoder.readSmallInt();
+                if (count == 0) {
+                    return ZERO_ARGS;
+                }
+                Object[] args = new Object[count];
+                for (int i = 0; i < count; i++) {
+                    int serializerId = decoder.readSmallInt();
+                    if (serializerId != NULL_ARG) {
+                        args[i] = serializers.get(serializerId - 1).read(decoder);
+                    }
+                }
+                return args;
+            }
+        };
+    }
+
+    public ObjectWriter<Object[]> newWriter(final Encoder encoder) {
+        final ObjectWriter<Object[]> defaultWriter = defaultArgsSerializer.newWriter(encoder);
+        return new ObjectWriter<Object[]>() {
+            public void write(Object[] args) throws Exception {
+                int[] serializerIds = new int[args.length];
+                for (int i = 0; i < args.length; i++) {
+                    if (args[i] != null) {
+                        serializerIds[i] = findSerializer(args[i].getClass());
+                        if (serializerIds[i] == NO_SERIALIZER) {
+                            encoder.writeByte(JAVA_SERIALIZED);
+                            defaultWriter.write(args);
+                            return;
+                        }
+                    }
+                }
+                encoder.writeByte(REGISTRY_SERIALIZED);
+                encoder.writeSmallInt(args.length);
+                for (int i = 0; i < args.length; i++) {
+                    encoder.writeSmallInt(serializerIds[i]);
+                    if (serializerIds[i] != NULL_ARG) {
+                        serializers.get(serializerIds[i] - 1).write(encoder, args[i]);
+                    }
+                }
+            }
+        };
+    }
+
+    private int findSerializer(Class<?> type) {
+        for (int i = 0; i < registries.size(); i++) {
+            if (registries.get(i).canSerialize(type)) {
+                return i + 1;
+            }
+        }
+        return NO_SERIALIZER;
+    }
+}
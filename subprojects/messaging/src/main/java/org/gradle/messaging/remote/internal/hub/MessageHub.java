@@ -17,16 +17,20 @@
 package org.gradle.messaging.remote.internal.hub;
 
 import org.gradle.api.Action;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.AsyncStoppable;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.dispatch.Dispatch;
-import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.RemoteConnection;
 import org.gradle.messaging.remote.internal.hub.protocol.*;
 import org.gradle.messaging.remote.internal.hub.queue.EndPointQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -35,16 +39,26 @@ import java.util.concurrent.locks.ReentrantLock;
  *
  * Use {@link #getOutgoing(String, Class)} to create a {@link Dispatch} to send unicast messages on a given channel.
  * Use {@link #addHandler(String, Object)} to create a worker for incoming messages on a given channel.
- * Use {@link #addConnection(Connection)} to attach another router to this router.
+ * Use {@link #addConnection(RemoteConnection)} to attach another router to this router.
+ *
+ * While a connection is attached, at most a given number of outgoing messages are queued waiting for the connection. Dispatching an outgoing message
+ * blocks when the queue is full, until the connection has caught up. Incoming messages are not limited, so that the receiving side of a connection
+ * never waits for the handlers of this hub, and two hubs that send messages to each other cannot deadlock.
  */
 public class MessageHub implements AsyncStoppable {
     private enum State {Running, Stopping, Stopped}
 
+    public static final int DEFAULT_MAX_QUEUED_OUTGOING = 1000;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MessageHub.class);
     private static final Discard DISCARD = new Discard();
     private final StoppableExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
     private final Lock lock = new ReentrantLock();
+    private final Condition outgoingTaken = lock.newCondition();
+    private final int maxQueuedOutgoing;
+    private int maxOutgoingQueueDepth;
+    private int blockedDispatchCount;
     private State state = State.Running;
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
     private final OutgoingQueue outgoingQueue = new OutgoingQueue(incomingQueue, lock);
@@ -54,7 +68,19 @@ public class MessageHub implements AsyncStoppable {
      * @param errorHandler Notified when some asynch. activity fails. Must be thread-safe.
      */
     public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler) {
+        this(displayName, executorFactory, errorHandler, DEFAULT_MAX_QUEUED_OUTGOING);
+    }
+
+    /**
+     * @param errorHandler Notified when some asynch. activity fails. Must be thread-safe.
+     * @param maxQueuedOutgoing The number of outgoing messages that can be queued for the connections before dispatch blocks.
+     */
+    public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler, int maxQueuedOutgoing) {
+        if (maxQueuedOutgoing < 1) {
+            throw new IllegalArgumentException("The maximum number of queued outgoing messages must be at least 1.");
+        }
         this.displayName = displayName;
+        this.maxQueuedOutgoing = maxQueuedOutgoing;
         this.errorHandler = errorHandler;
         workers = executorFactory.create(String.format("%s workers", displayName));
     }
@@ -127,7 +153,7 @@ public class MessageHub implements AsyncStoppable {
     /**
      * Adds a connection to some other message hub. Outgoing messages are forwarded to this connection, and incoming messages are received from it.
      */
-    public void addConnection(Connection<InterHubMessage> connection) {
+    public void addConnection(RemoteConnection<InterHubMessage> connection) {
         lock.lock();
         try {
             assertRunning("add connection");
@@ -167,6 +193,7 @@ public class MessageHub implements AsyncStoppable {
                 connections.requestStop();
             } finally {
                 state = State.Stopping;
+                outgoingTaken.signalAll();
             }
         } finally {
             lock.unlock();
@@ -199,6 +226,9 @@ public class MessageHub implements AsyncStoppable {
             lock.lock();
             try {
                 state = State.Stopped;
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("{}: at most {} outgoing messages were queued, dispatch waited for the connection {} times.", displayName, maxOutgoingQueueDepth, blockedDispatchCount);
+                }
             } finally {
                 lock.unlock();
             }
@@ -220,7 +250,7 @@ public class MessageHub implements AsyncStoppable {
     }
 
     private class ConnectionReceive implements Runnable {
-        private final Connection<InterHubMessage> connection;
+        private final RemoteConnection<InterHubMessage> connection;
         private final ConnectionState connectionState;
 
         public ConnectionReceive(ConnectionState connectionState) {
@@ -258,7 +288,7 @@ public class MessageHub implements AsyncStoppable {
     }
 
     private class ConnectionDispatch implements Runnable {
-        private final Connection<InterHubMessage> connection;
+        private final RemoteConnection<InterHubMessage> connection;
         private final EndPointQueue queue;
         private final ConnectionState connectionState;
 
@@ -276,22 +306,27 @@ public class MessageHub implements AsyncStoppable {
                         lock.lock();
                         try {
                             queue.take(messages);
+                            outgoingTaken.signalAll();
                         } finally {
                             lock.unlock();
                         }
+                        // Send all the messages queued so far, and then flush them in one go
                         for (Object message : messages) {
                             InterHubMessage channelMessage = (InterHubMessage) message;
                             connection.dispatch(channelMessage);
                             if (message instanceof EndOfStream) {
+                                connection.flush();
                                 return;
                             }
                         }
+                        connection.flush();
                         messages.clear();
                     }
                 } finally {
                     lock.lock();
                     try {
                         connectionState.dispatchFinished();
+                        outgoingTaken.signalAll();
                     } finally {
                         lock.unlock();
                     }
@@ -319,12 +354,33 @@ public class MessageHub implements AsyncStoppable {
         public void dispatch(T message) {
             lock.lock();
             try {
+                waitForOutgoingCapacity();
                 assertRunning("dispatch message");
                 outgoingQueue.dispatch(new ChannelMessage(channelIdentifier, message));
+                maxOutgoingQueueDepth = Math.max(maxOutgoingQueueDepth, outgoingQueue.size());
             } finally {
                 lock.unlock();
             }
         }
+
+        /**
+         * Blocks while the outgoing queue is full and some connection is taking messages from it. Messages dispatched while there is no connection
+         * are queued without limit, as there is nothing to wait for.
+         */
+        private void waitForOutgoingCapacity() {
+            boolean blocked = false;
+            while (state == State.Running && outgoingQueue.size() >= maxQueuedOutgoing && connections.hasDispatchingConnection()) {
+                if (!blocked) {
+                    blocked = true;
+                    blockedDispatchCount++;
+                }
+                try {
+                    outgoingTaken.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
     }
 
     private class Handler implements Runnable {
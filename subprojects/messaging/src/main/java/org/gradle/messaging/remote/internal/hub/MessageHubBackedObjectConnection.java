@@ -25,22 +25,30 @@ import org.gradle.messaging.dispatch.ProxyDispatchAdapter;
 import org.gradle.messaging.dispatch.ReflectionDispatch;
 import org.gradle.messaging.remote.ObjectConnection;
 import org.gradle.messaging.remote.internal.ConnectCompletion;
-import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.RemoteConnection;
 import org.gradle.messaging.remote.internal.MessageSerializer;
 import org.gradle.messaging.remote.internal.hub.protocol.InterHubMessage;
+import org.gradle.messaging.serialize.BaseSerializerFactory;
+import org.gradle.messaging.serialize.DefaultSerializerRegistry;
+import org.gradle.messaging.serialize.SerializerRegistry;
 import org.gradle.messaging.serialize.kryo.JavaSerializer;
 import org.gradle.messaging.serialize.kryo.StatefulSerializer;
 import org.gradle.messaging.serialize.kryo.TypeSafeSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
 public class MessageHubBackedObjectConnection implements ObjectConnection {
     private static final Logger LOGGER = LoggerFactory.getLogger(MessageHubBackedObjectConnection.class);
     private final MessageHub hub;
     private ConnectCompletion completion;
-    private Connection<InterHubMessage> connection;
+    private RemoteConnection<InterHubMessage> connection;
     private ClassLoader methodParamClassLoader;
     private StatefulSerializer<Object[]> paramSerializer;
+    private final List<SerializerRegistry<Object>> paramSerializers = new ArrayList<SerializerRegistry<Object>>();
 
     public MessageHubBackedObjectConnection(ExecutorFactory executorFactory, ConnectCompletion completion) {
         this.hub = new MessageHub(completion.toString(), executorFactory, new Action<Throwable>() {
@@ -74,6 +82,10 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
         this.paramSerializer = serializer;
     }
 
+    public void useParameterSerializers(SerializerRegistry<Object> serializers) {
+        this.paramSerializers.add(serializers);
+    }
+
     public void connect() {
         if (methodParamClassLoader == null) {
             methodParamClassLoader = getClass().getClassLoader();
@@ -81,7 +93,9 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
 
         StatefulSerializer<Object[]> paramSerializer = this.paramSerializer;
         if (paramSerializer == null) {
-            paramSerializer = new JavaSerializer<Object[]>(methodParamClassLoader);
+            List<SerializerRegistry<Object>> registries = new ArrayList<SerializerRegistry<Object>>(paramSerializers);
+            registries.add(createBuiltInSerializers());
+            paramSerializer = new DefaultMethodArgsSerializer(registries, new JavaSerializer<Object[]>(methodParamClassLoader));
         }
 
         MessageSerializer<InterHubMessage> serializer = new InterHubMessageSerializer(
@@ -94,6 +108,15 @@ public class MessageHubBackedObjectConnection implements ObjectConnection {
         completion = null;
     }
 
+    private static SerializerRegistry<Object> createBuiltInSerializers() {
+        SerializerRegistry<Object> registry = new DefaultSerializerRegistry<Object>();
+        registry.register(String.class, BaseSerializerFactory.STRING_SERIALIZER);
+        registry.register(Long.class, BaseSerializerFactory.LONG_SERIALIZER);
+        registry.register(File.class, BaseSerializerFactory.FILE_SERIALIZER);
+        registry.register(byte[].class, BaseSerializerFactory.BYTE_ARRAY_SERIALIZER);
+        return registry;
+    }
+
     public void requestStop() {
         hub.requestStop();
     }
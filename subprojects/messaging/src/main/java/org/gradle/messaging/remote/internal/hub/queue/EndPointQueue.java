@@ -40,6 +40,10 @@ public class EndPointQueue implements Dispatch<InterHubMessage> {
         condition.signalAll();
     }
 
+    public int size() {
+        return queue.size();
+    }
+
     public void take(Collection<InterHubMessage> drainTo) {
         if (queue.isEmpty()) {
             owner.empty(this);
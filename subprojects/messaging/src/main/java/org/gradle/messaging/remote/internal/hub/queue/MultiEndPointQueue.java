@@ -52,6 +52,17 @@ public class MultiEndPointQueue implements Dispatch<InterHubMessage> {
         queue.dispatch(new EndOfStream());
     }
 
+    /**
+     * Returns the number of messages waiting in this queue and its endpoints.
+     */
+    public int size() {
+        int size = queue.size();
+        for (EndPointQueue endpoint : endpoints) {
+            size += endpoint.size();
+        }
+        return size;
+    }
+
     public void drain(Collection<InterHubMessage> drainTo) {
         drainTo.addAll(queue);
         queue.clear();
@@ -37,13 +37,14 @@ import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 
 public class SocketConnection<T> implements RemoteConnection<T> {
+    private static final int BUFFER_SIZE = 64 * 1024;
     private final SocketChannel socket;
     private final SocketInetAddress localAddress;
     private final SocketInetAddress remoteAddress;
     private final ObjectWriter<T> objectWriter;
     private final ObjectReader<T> objectReader;
     private final InputStream instr;
-    private final OutputStream outstr;
+    private final SocketOutputStream outstr;
 
     public SocketConnection(SocketChannel socket, MessageSerializer<T> serializer) {
         this.socket = socket;
@@ -101,18 +102,34 @@ public class SocketConnection<T> implements RemoteConnection<T> {
     public void dispatch(T message) throws MessageIOException {
         try {
             objectWriter.write(message);
-            outstr.flush();
         } catch (Exception e) {
             throw new MessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
         }
     }
 
+    public void flush() throws MessageIOException {
+        try {
+            outstr.writeBufferedData();
+        } catch (Exception e) {
+            throw new MessageIOException(String.format("Could not write messages to '%s'.", remoteAddress), e);
+        }
+    }
+
     public void requestStop() {
         CompositeStoppable.stoppable(instr).stop();
     }
 
-    public void stop() {
-        CompositeStoppable.stoppable(instr, outstr, socket).stop();
+    /**
+     * Sends any messages dispatched since the last flush, then closes the connection. The connection is closed even when the messages cannot be sent.
+     *
+     * @throws MessageIOException On failure to send the messages to the peer.
+     */
+    public void stop() throws MessageIOException {
+        try {
+            flush();
+        } finally {
+            CompositeStoppable.stoppable(instr, outstr, socket).stop();
+        }
     }
 
     private static class SocketInputStream extends InputStream {
@@ -125,7 +142,7 @@ public class SocketConnection<T> implements RemoteConnection<T> {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_READ);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
             buffer.limit(0);
         }
 
@@ -174,17 +191,23 @@ public class SocketConnection<T> implements RemoteConnection<T> {
         }
     }
 
+    /**
+     * Buffers the messages written to the socket until {@link #writeBufferedData()} is called, so that several messages can be sent with a single write.
+     * Data that does not fit in the buffer is written directly from the caller's array, together with the buffered data.
+     */
     private static class SocketOutputStream extends OutputStream {
         private final Selector selector;
         private final SocketChannel socket;
         private final ByteBuffer buffer;
+        private final ByteBuffer[] buffers = new ByteBuffer[2];
         private final byte[] writeBuffer = new byte[1];
 
         public SocketOutputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
             selector = Selector.open();
             socket.register(selector, SelectionKey.OP_WRITE);
-            buffer = ByteBuffer.allocateDirect(4096);
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffers[0] = buffer;
         }
 
         @Override
@@ -195,32 +218,51 @@ public class SocketConnection<T> implements RemoteConnection<T> {
 
         @Override
         public void write(byte[] src, int offset, int max) throws IOException {
-            int remaining = max;
-            int currentPos = offset;
-            while (remaining > 0) {
-                int count = Math.min(remaining, buffer.remaining());
-                if (count > 0) {
-                    buffer.put(src, currentPos, count);
-                    remaining -= count;
-                    currentPos += count;
-                }
-                if (buffer.remaining() == 0) {
-                    flush();
+            if (max > buffer.remaining()) {
+                buffers[1] = ByteBuffer.wrap(src, offset, max);
+                buffer.flip();
+                try {
+                    writeFully(buffers);
+                } finally {
+                    buffers[1] = null;
+                    buffer.clear();
                 }
+                return;
             }
+            buffer.put(src, offset, max);
         }
 
+        /**
+         * Does nothing. The serializers flush after each message, and the connection decides when the buffered data is written to the socket.
+         */
         @Override
-        public void flush() throws IOException {
+        public void flush() {
+        }
+
+        public void writeBufferedData() throws IOException {
             buffer.flip();
-            while (buffer.remaining() > 0) {
-                selector.select();
-                if (!selector.isOpen()) {
-                    throw new EOFException();
+            try {
+                while (buffer.remaining() > 0) {
+                    waitUntilWritable();
+                    socket.write(buffer);
                 }
-                socket.write(buffer);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        private void writeFully(ByteBuffer[] buffers) throws IOException {
+            while (buffers[buffers.length - 1].remaining() > 0) {
+                waitUntilWritable();
+                socket.write(buffers);
+            }
+        }
+
+        private void waitUntilWritable() throws IOException {
+            selector.select();
+            if (!selector.isOpen()) {
+                throw new EOFException();
             }
-            buffer.clear();
         }
 
         @Override
@@ -32,6 +32,10 @@ public class DefaultSerializerRegistry<T> implements SerializerRegistry<T> {
         serializerMap.put(implementationType, serializer);
     }
 
+    public boolean canSerialize(Class<?> type) {
+        return serializerMap.containsKey(targetType(type));
+    }
+
     public Serializer<T> build() {
         if (serializerMap.size() == 1) {
             return (Serializer<T>) serializerMap.values().iterator().next();
@@ -43,6 +47,10 @@ public class DefaultSerializerRegistry<T> implements SerializerRegistry<T> {
         return serializer;
     }
 
+    private static Class<?> targetType(Class<?> type) {
+        return Throwable.class.isAssignableFrom(type) ? Throwable.class : type;
+    }
+
     private static class TypeInfo {
         final byte tag;
         final Serializer serializer;
@@ -73,8 +81,7 @@ public class DefaultSerializerRegistry<T> implements SerializerRegistry<T> {
         }
 
         public void write(Encoder encoder, T value) throws Exception {
-            Class<?> targetType = value instanceof Throwable ? Throwable.class : value.getClass();
-            TypeInfo typeInfo = serializersByType.get(targetType);
+            TypeInfo typeInfo = serializersByType.get(targetType(value.getClass()));
             if (typeInfo == null) {
                 throw new IllegalArgumentException(String.format("Don't know how to serialize an object of type %s.", value.getClass().getName()));
             }
@@ -19,5 +19,10 @@ package org.gradle.messaging.serialize;
 public interface SerializerRegistry<T> {
     <U extends T> void register(Class<U> implementationType, Serializer<U> serializer);
 
+    /**
+     * Returns true when the serializer built by this registry can serialize an object of the given type.
+     */
+    boolean canSerialize(Class<?> type);
+
     Serializer<T> build();
 }
@@ -16,7 +16,7 @@
 
 package org.gradle.messaging.remote.internal.hub
 
-import org.gradle.messaging.remote.internal.Connection
+import org.gradle.messaging.remote.internal.RemoteConnection
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelIdentifier
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelMessage
 import org.gradle.messaging.remote.internal.hub.protocol.ConnectionClosed
@@ -56,7 +56,7 @@ class ConnectionSetTest extends AbstractQueueTest {
 
         given:
         def incoming = incomingQueue.getChannel(channel).newEndpoint()
-        def connection = connections.add(Mock(Connection))
+        def connection = connections.add(Mock(RemoteConnection))
         outgoingQueue.dispatch(message)
 
         when:
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.messaging.remote.internal.hub
+
+import org.gradle.messaging.serialize.BaseSerializerFactory
+import org.gradle.messaging.serialize.DefaultSerializerRegistry
+import org.gradle.messaging.serialize.kryo.JavaSerializer
+import org.gradle.messaging.serialize.kryo.KryoBackedDecoder
+import org.gradle.messaging.serialize.kryo.KryoBackedEncoder
+import org.gradle.messaging.serialize.kryo.StatefulSerializer
+import spock.lang.Specification
+
+class DefaultMethodArgsSerializerTest extends Specification {
+    final javaSerializer = new JavaSerializer<Object[]>(getClass().classLoader)
+    final registry = new DefaultSerializerRegistry<Object>()
+    final serializer = new DefaultMethodArgsSerializer([registry], javaSerializer)
+
+    def setup() {
+        registry.register(String, BaseSerializerFactory.STRING_SERIALIZER)
+        registry.register(Long, BaseSerializerFactory.LONG_SERIALIZER)
+    }
+
+    def "serializes arguments using the registered serializers"() {
+        when:
+        def result = deserialize(serialize(serializer, ["a", 12L, null] as Object[]))
+
+        then:
+        result == ["a", 12L, null] as Object[]
+    }
+
+    def "serializes arguments using Java serialization when one of them has no registered serializer"() {
+        when:
+        def result = deserialize(serialize(serializer, ["a", 12] as Object[]))
+
+        then:
+        result == ["a", 12] as Object[]
+    }
+
+    def "serializes empty arguments"() {
+        expect:
+        deserialize(serialize(serializer, [] as Object[])) == [] as Object[]
+    }
+
+    def "registered serializers use fewer bytes than Java serialization"() {
+        def args = ["some-test", 12L] as Object[]
+
+        expect:
+        serialize(serializer, args).length * 5 < serialize(javaSerializer, args).length
+    }
+
+    def serialize(StatefulSerializer<Object[]> serializer, Object[] args) {
+        def outStr = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outStr)
+        serializer.newWriter(encoder).write(args)
+        encoder.flush()
+        return outStr.toByteArray()
+    }
+
+    def deserialize(byte[] data) {
+        def decoder = new KryoBackedDecoder(new ByteArrayInputStream(data))
+        return serializer.newReader(decoder).read()
+    }
+}
@@ -18,7 +18,7 @@ package org.gradle.messaging.remote.internal.hub
 
 import org.gradle.api.Action
 import org.gradle.messaging.dispatch.Dispatch
-import org.gradle.messaging.remote.internal.Connection
+import org.gradle.messaging.remote.internal.RemoteConnection
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelIdentifier
 import org.gradle.messaging.remote.internal.hub.protocol.ChannelMessage
 import org.gradle.messaging.remote.internal.hub.protocol.EndOfStream
@@ -191,6 +191,53 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "outgoing dispatch blocks while queue is full until connection takes the queued messages"() {
+        def boundedHub = new MessageHub("<bounded-hub>", executorFactory, errorHandler, 2)
+        Dispatch<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+
+        given:
+        outgoing.dispatch({ it instanceof ChannelMessage && it.payload == 1 }) >> {
+            instant.firstTaken
+            thread.block()
+            instant.connectionResumed
+        }
+
+        and:
+        boundedHub.addConnection(connection)
+        def dispatcher = boundedHub.getOutgoing("channel", Long)
+
+        when:
+        dispatcher.dispatch(1)
+        thread.blockUntil.firstTaken
+        dispatcher.dispatch(2)
+        dispatcher.dispatch(3)
+        operation.dispatch {
+            dispatcher.dispatch(4)
+        }
+
+        then:
+        operation.dispatch.end > instant.connectionResumed
+
+        cleanup:
+        connection.stop()
+        boundedHub.stop()
+    }
+
+    def "outgoing dispatch does not block when no connection is attached"() {
+        def boundedHub = new MessageHub("<bounded-hub>", executorFactory, errorHandler, 2)
+
+        when:
+        def dispatcher = boundedHub.getOutgoing("channel", Long)
+        10.times { dispatcher.dispatch(it) }
+
+        then:
+        noExceptionThrown()
+
+        cleanup:
+        boundedHub.stop()
+    }
+
     def "each outgoing message is dispatched to exactly one connection"() {
         def messages = new CopyOnWriteArrayList()
         Dispatch<InterHubMessage> outgoing = Mock()
@@ -610,7 +657,7 @@ class MessageHubTest extends ConcurrentSpec {
     def "cannot add connection after stop started"() {
         when:
         hub.requestStop()
-        hub.addConnection(Mock(Connection))
+        hub.addConnection(Mock(RemoteConnection))
 
         then:
         IllegalStateException e = thrown()
@@ -627,7 +674,7 @@ class MessageHubTest extends ConcurrentSpec {
         0 * _._
     }
 
-    private static class MockOutgoingConnection implements Connection<InterHubMessage> {
+    private static class MockOutgoingConnection implements RemoteConnection<InterHubMessage> {
         private final Dispatch<InterHubMessage> dispatch
         private final BlockingQueue<InterHubMessage> incoming = new LinkedBlockingQueue<>()
 
@@ -639,6 +686,9 @@ class MessageHubTest extends ConcurrentSpec {
             dispatch.dispatch(message)
         }
 
+        void flush() {
+        }
+
         InterHubMessage receive() {
             return incoming.take()
         }
@@ -652,7 +702,7 @@ class MessageHubTest extends ConcurrentSpec {
         }
     }
 
-    private static class TestConnection implements Connection<InterHubMessage> {
+    private static class TestConnection implements RemoteConnection<InterHubMessage> {
         private final BlockingQueue<InterHubMessage> incoming = new LinkedBlockingQueue<>()
         private final BlockingQueue<InterHubMessage> outgoing = new LinkedBlockingQueue<>()
 
@@ -660,6 +710,9 @@ class MessageHubTest extends ConcurrentSpec {
             outgoing.put(message)
         }
 
+        void flush() {
+        }
+
         InterHubMessage receive() {
             def message = incoming.take()
             return message instanceof EndOfStream ? null : message
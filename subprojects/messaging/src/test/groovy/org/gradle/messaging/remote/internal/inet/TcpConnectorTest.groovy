@@ -179,5 +179,30 @@ class TcpConnectorTest extends ConcurrentSpec {
         connection?.stop()
         acceptor?.stop()
     }
-}
 
+    def "sends messages queued before a flush together"() {
+        when:
+        def acceptor = incomingConnector.accept({ ConnectCompletion event ->
+            def connection = event.create(serializer)
+            connection.dispatch("a")
+            connection.dispatch("b".multiply(100000))
+            connection.dispatch("c")
+            connection.flush()
+            connection.stop()
+            instant.closed
+        } as Action, false)
+
+        def connection = outgoingConnector.connect(acceptor.address).create(serializer)
+        thread.blockUntil.closed
+
+        then:
+        connection.receive() == "a"
+        connection.receive() == "b".multiply(100000)
+        connection.receive() == "c"
+        connection.receive() == null
+
+        cleanup:
+        connection?.stop()
+        acceptor?.stop()
+    }
+}
@@ -76,6 +76,18 @@ class DefaultSerializerRegistryTest extends SerializerSpec {
         fromBytes(toBytes(123, serializer1), serializer2) == 123
     }
 
+    def "can serialize registered types and any Throwable when Throwable is registered"() {
+        given:
+        def registry = new DefaultSerializerRegistry()
+        registry.register(Long, longSerializer)
+        registry.register(Throwable, Stub(Serializer))
+
+        expect:
+        registry.canSerialize(Long)
+        registry.canSerialize(RuntimeException)
+        !registry.canSerialize(Integer)
+    }
+
     def "cannot write value with type that has not been registered"() {
         given:
         def registry = new DefaultSerializerRegistry()
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.testing
+
+import org.gradle.integtests.fixtures.AbstractIntegrationSpec
+
+class TestWorkerReuseIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        executer.withArgument("-Dorg.gradle.test.reuseWorkers=true")
+    }
+
+    def "test tasks with the same JVM options share a worker without sharing static state"() {
+        buildFile << """
+            apply plugin: 'java'
+            repositories { mavenCentral() }
+            dependencies { testCompile 'junit:junit:4.11' }
+
+            task otherTest(type: Test) {
+                testClassesDir = sourceSets.test.output.classesDir
+                classpath = sourceSets.test.runtimeClasspath
+                binResultsDir = file("\$buildDir/other-test-results/binary")
+                reports.junitXml.destination = file("\$buildDir/other-test-results")
+                reports.html.destination = file("\$buildDir/reports/other-tests")
+                mustRunAfter test
+            }
+        """
+        file("src/test/java/SomeTest.java") << """
+            import java.io.FileWriter;
+            import java.lang.management.ManagementFactory;
+            import org.junit.Test;
+            import static org.junit.Assert.*;
+
+            public class SomeTest {
+                static int runs;
+
+                @Test
+                public void doesNotSeeStateOfEarlierTestTask() throws Exception {
+                    assertEquals(0, runs++);
+                    FileWriter writer = new FileWriter("build/test-jvms.txt", true);
+                    try {
+                        writer.write(ManagementFactory.getRuntimeMXBean().getName() + "\\n");
+                    } finally {
+                        writer.close();
+                    }
+                }
+            }
+        """
+
+        when:
+        succeeds("test", "otherTest")
+
+        then:
+        def jvms = file("build/test-jvms.txt").readLines()
+        jvms.size() == 2
+        jvms[0] == jvms[1]
+    }
+}
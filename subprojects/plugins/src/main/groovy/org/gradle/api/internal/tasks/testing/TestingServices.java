@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing;
+
+import org.gradle.api.internal.tasks.testing.detection.DefaultTestClassSummaryCache;
+import org.gradle.api.internal.tasks.testing.detection.TestClassSummaryCache;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
+import org.gradle.cache.CacheRepository;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.service.ServiceRegistration;
+import org.gradle.internal.service.scopes.PluginServiceRegistry;
+
+public class TestingServices implements PluginServiceRegistry {
+    public void registerGlobalServices(ServiceRegistration registration) {
+        registration.addProvider(new GlobalScopeTestingServices());
+    }
+
+    public void registerBuildServices(ServiceRegistration registration) {
+        registration.addProvider(new BuildScopeTestingServices());
+    }
+
+    public void registerProjectServices(ServiceRegistration registration) {
+    }
+
+    private static class GlobalScopeTestingServices {
+        TestWorkerPool createTestWorkerPool(ExecutorFactory executorFactory) {
+            return new TestWorkerPool(executorFactory, Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    private static class BuildScopeTestingServices {
+        TestClassSummaryCache createTestClassSummaryCache(CacheRepository cacheRepository) {
+            return new DefaultTestClassSummaryCache(cacheRepository);
+        }
+    }
+}
@@ -21,7 +21,13 @@ import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
+import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Hasher;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.internal.hash.HashValue;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
@@ -30,16 +36,23 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
+    private static final int MIN_CLASSES_PER_THREAD = 50;
 
     private List<File> testClassDirectories;
     private final ClassFileExtractionManager classFileExtractionManager;
     private final Map<File, Boolean> superClasses;
     private TestClassProcessor testClassProcessor;
     private final List<String> knownTestCaseClassNames;
+    private final Map<File, TestClassSummary> readClasses = new ConcurrentHashMap<File, TestClassSummary>();
+    private final Hasher hasher = new DefaultHasher();
+    private TestClassSummaryCache classSummaryCache;
+    private ExecutorFactory executorFactory;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
@@ -107,6 +120,58 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
+    public void setClassSummaryCache(TestClassSummaryCache classSummaryCache) {
+        this.classSummaryCache = classSummaryCache;
+    }
+
+    public void setExecutorFactory(ExecutorFactory executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    public void readTestClasses(final List<File> testClassFiles) {
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), testClassFiles.size() / MIN_CLASSES_PER_THREAD);
+        if (executorFactory == null || threads < 2) {
+            return;
+        }
+
+        final AtomicInteger nextFile = new AtomicInteger();
+        StoppableExecutor executor = executorFactory.create("Test class detection");
+        for (int i = 0; i < threads; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    for (int index = nextFile.getAndIncrement(); index < testClassFiles.size(); index = nextFile.getAndIncrement()) {
+                        File testClassFile = testClassFiles.get(index);
+                        readClasses.put(testClassFile, readClass(testClassFile));
+                    }
+                }
+            });
+        }
+        executor.stop();
+    }
+
+    /**
+     * Returns the summary of the given class file, parsing the class file only when it has not been read ahead and its content is not in the cache.
+     */
+    protected TestClassSummary classSummary(File testClassFile) {
+        TestClassSummary summary = readClasses.get(testClassFile);
+        if (summary != null) {
+            return summary;
+        }
+        return readClass(testClassFile);
+    }
+
+    private TestClassSummary readClass(final File testClassFile) {
+        if (classSummaryCache == null) {
+            return new TestClassSummary(classVisitor(testClassFile));
+        }
+        String key = getClass().getName() + ":" + new HashValue(hasher.hash(testClassFile)).asHexString();
+        return classSummaryCache.get(key, new Factory<TestClassSummary>() {
+            public TestClassSummary create() {
+                return new TestClassSummary(classVisitor(testClassFile));
+            }
+        });
+    }
+
     protected TestClassVisitor classVisitor(final File testClassFile) {
         final TestClassVisitor classVisitor = createClassVisitor();
 
@@ -150,9 +215,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, TestClassSummary classSummary, boolean superClass) {
+        if (isTest && !classSummary.isAbstract() && !superClass) {
+            String className = Type.getObjectType(classSummary.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -24,6 +24,8 @@ import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
@@ -50,12 +52,18 @@ public class DefaultTestClassScanner implements Runnable {
     }
 
     private void detectionScan() {
-        testFrameworkDetector.startDetection(testClassProcessor);
+        final List<File> testClassFiles = new ArrayList<File>();
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+                testClassFiles.add(fileDetails.getFile());
             }
         });
+
+        testFrameworkDetector.readTestClasses(testClassFiles);
+        testFrameworkDetector.startDetection(testClassProcessor);
+        for (File testClassFile : testClassFiles) {
+            testFrameworkDetector.processTestClass(testClassFile);
+        }
     }
 
     private void filenameScan() {
@@ -25,29 +25,58 @@ import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassPro
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.PooledTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final Map<String, Long> previousTestClassDurations;
+    private final TestWorkerPool workerPool;
+    private final TestClassSummaryCache classSummaryCache;
+    private final ExecutorFactory executorFactory;
 
     public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+        this(workerFactory, actorFactor, Collections.<String, Long>emptyMap(), null, null, null);
+    }
+
+    /**
+     * @param workerPool The pool to take test workers from, or null to start new workers for this execution.
+     * @param classSummaryCache The cache to use for test class detection, or null to parse every candidate class file.
+     * @param executorFactory The executor factory to use to read candidate class files concurrently, or null to read them one at a time.
+     */
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, Map<String, Long> previousTestClassDurations,
+                               TestWorkerPool workerPool, TestClassSummaryCache classSummaryCache, ExecutorFactory executorFactory) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.workerPool = workerPool;
+        this.classSummaryCache = classSummaryCache;
+        this.executorFactory = executorFactory;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final boolean reuseWorkers = workerPool != null && testTask.getForkEvery() == 0;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
+                if (reuseWorkers) {
+                    return new PooledTestClassProcessor(workerPool, workerFactory, testInstanceFactory, testTask,
+                            testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                }
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
                         testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
             }
@@ -59,7 +88,7 @@ public class DefaultTestExecuter implements TestExecuter {
         };
 
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+                reforkingProcessorFactory, actorFactor, previousTestClassDurations);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -68,6 +97,8 @@ public class DefaultTestExecuter implements TestExecuter {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
+            testFrameworkDetector.setClassSummaryCache(classSummaryCache);
+            testFrameworkDetector.setExecutorFactory(executorFactory);
             detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+/**
+ * What a test framework detector needs to know about a class file: its name, its super class, whether it is abstract and whether the class itself
+ * is a test.
+ */
+public class TestClassSummary {
+    private final String className;
+    private final String superClassName;
+    private final boolean test;
+    private final boolean isAbstract;
+
+    public TestClassSummary(String className, String superClassName, boolean test, boolean isAbstract) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.test = test;
+        this.isAbstract = isAbstract;
+    }
+
+    public TestClassSummary(TestClassVisitor classVisitor) {
+        this(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isTest(), classVisitor.isAbstract());
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public boolean isTest() {
+        return test;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+}
@@ -17,8 +17,10 @@ package org.gradle.api.internal.tasks.testing.detection;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.concurrent.ExecutorFactory;
 
 import java.io.File;
+import java.util.List;
 
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
@@ -28,4 +30,14 @@ public interface TestFrameworkDetector {
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
+
+    void setClassSummaryCache(TestClassSummaryCache classSummaryCache);
+
+    void setExecutorFactory(ExecutorFactory executorFactory);
+
+    /**
+     * Reads the given class files ahead of {@link #processTestClass(java.io.File)}. The class files may be read concurrently, using
+     * the executor factory when one has been set.
+     */
+    void readTestClasses(List<File> testClassFiles);
 }
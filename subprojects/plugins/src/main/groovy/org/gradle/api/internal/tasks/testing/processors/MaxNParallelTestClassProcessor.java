@@ -26,27 +26,56 @@ import org.gradle.messaging.actor.Actor;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.dispatch.DispatchException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
  * processors.
+ *
+ * <p>When the durations of the test classes in a previous run are known, each test class is instead assigned to the processor with the least
+ * estimated work. The processors are started, and test classes that are expected to run long are assigned, as soon as the test classes are found.
+ * The remaining short test classes are collected until all test classes have been found, and are then assigned longest first, which evens out the
+ * estimated work of the processors. This stops a processor that happens to receive several long running test classes from holding up the others.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    /**
+     * A test class that is expected to take at least 1/n of the estimated work of a processor is assigned as soon as it is found.
+     */
+    private static final int LONG_TEST_CLASS_DIVISOR = 10;
+
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousDurations;
+    private final long defaultDuration;
+    private final long longDuration;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private List<Long> workloads = new ArrayList<Long>();
+    private List<TestClassRunInfo> pending = new ArrayList<TestClassRunInfo>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @param previousDurations The duration in milliseconds of each test class in a previous run, keyed by class name.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousDurations = previousDurations;
+        long total = 0;
+        for (Long duration : previousDurations.values()) {
+            total += duration;
+        }
+        // Test classes that did not run previously are assumed to take as long as an average test class
+        this.defaultDuration = previousDurations.isEmpty() ? 0 : total / previousDurations.size();
+        this.longDuration = total / Math.max(1, maxProcessors) / LONG_TEST_CLASS_DIVISOR;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -55,14 +84,18 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
+        if (maxProcessors > 1 && !previousDurations.isEmpty()) {
+            if (processors.size() < maxProcessors || estimate(testClass) >= longDuration) {
+                assignToLeastBusyProcessor(testClass);
+            } else {
+                pending.add(testClass);
+            }
+            return;
+        }
+
         TestClassProcessor processor;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
+            processor = startProcessor();
         } else {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
@@ -70,7 +103,55 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
         processor.processTestClass(testClass);
     }
 
+    private TestClassProcessor startProcessor() {
+        TestClassProcessor processor = factory.create();
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        workloads.add(0L);
+        processor.startProcessing(resultProcessor);
+        return processor;
+    }
+
+    private long estimate(TestClassRunInfo testClass) {
+        Long duration = previousDurations.get(testClass.getTestClassName());
+        return duration != null ? duration : defaultDuration;
+    }
+
+    private void assignToLeastBusyProcessor(TestClassRunInfo testClass) {
+        int index;
+        if (processors.size() < maxProcessors) {
+            startProcessor();
+            index = processors.size() - 1;
+        } else {
+            index = 0;
+            for (int i = 1; i < workloads.size(); i++) {
+                if (workloads.get(i) < workloads.get(index)) {
+                    index = i;
+                }
+            }
+        }
+        workloads.set(index, workloads.get(index) + estimate(testClass));
+        processors.get(index).processTestClass(testClass);
+    }
+
+    private void processPendingTestClasses() {
+        Collections.sort(pending, new Comparator<TestClassRunInfo>() {
+            public int compare(TestClassRunInfo o1, TestClassRunInfo o2) {
+                return Long.valueOf(estimate(o2)).compareTo(estimate(o1));
+            }
+        });
+        for (TestClassRunInfo testClass : pending) {
+            assignToLeastBusyProcessor(testClass);
+        }
+        pending.clear();
+    }
+
     public void stop() {
+        if (!pending.isEmpty()) {
+            processPendingTestClasses();
+        }
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
@@ -17,7 +17,7 @@ package org.gradle.api.internal.tasks.testing.testng;
 
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
-import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
+import org.gradle.api.internal.tasks.testing.detection.TestClassSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,12 +40,12 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
      * parent class is a test class all the extending classes are marked as test classes.
      */
     protected boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
+        final TestClassSummary classSummary = classSummary(testClassFile);
 
-        boolean isTest = classVisitor.isTest();
+        boolean isTest = classSummary.isTest();
 
         if (!isTest) {
-            final String superClassName = classVisitor.getSuperClassName();
+            final String superClassName = classSummary.getSuperClassName();
 
             final File superClassFile = getSuperTestClassFile(superClassName);
 
@@ -57,7 +57,7 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
             }
         }
 
-        publishTestClass(isTest, classVisitor, superClass);
+        publishTestClass(isTest, classSummary, superClass);
 
         return isTest;
     }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.Factory;
+import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.JavaExecHandleBuilder;
+import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.GUtil;
+
+import java.io.File;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Runs tests in a worker process from a {@link TestWorkerPool}, starting a new worker only when the pool does not contain an idle worker with the
+ * same JVM options.
+ */
+public class PooledTestClassProcessor implements TestClassProcessor {
+    private final TestWorkerPool pool;
+    private final Factory<WorkerProcessBuilder> workerFactory;
+    private final WorkerTestClassProcessorFactory processorFactory;
+    private final JavaForkOptions options;
+    private final Iterable<File> classPath;
+    private final Action<WorkerProcessBuilder> buildConfigAction;
+    private PooledTestWorker worker;
+    private TestResultProcessor resultProcessor;
+
+    public PooledTestClassProcessor(TestWorkerPool pool, Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this.pool = pool;
+        this.workerFactory = workerFactory;
+        this.processorFactory = processorFactory;
+        this.options = options;
+        this.classPath = classPath;
+        this.buildConfigAction = buildConfigAction;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        this.resultProcessor = resultProcessor;
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (worker == null) {
+            worker = startSession();
+        }
+
+        worker.processTestClass(testClass);
+    }
+
+    PooledTestWorker startSession() {
+        WorkerProcessBuilder builder = workerFactory.create();
+        builder.setBaseName("Gradle Test Executor");
+        builder.setLoadApplicationInSystemClassLoader(false);
+        builder.worker(new ReusableTestWorker());
+        options.copyTo(builder.getJavaCommand());
+        buildConfigAction.execute(builder);
+
+        Object key = workerKey(builder);
+        PooledTestWorker worker = pool.reserveIdleWorker(key);
+        if (worker == null) {
+            worker = pool.reserveNewWorker(key, builder);
+        }
+
+        List<URI> applicationClassPath = new ArrayList<URI>();
+        for (File file : classPath) {
+            applicationClassPath.add(file.toURI());
+        }
+        TestWorkerSession session = new TestWorkerSession(applicationClassPath, new ArrayList<String>(builder.getSharedPackages()), GUtil.serialize(processorFactory));
+        worker.startSession(session, resultProcessor);
+        return worker;
+    }
+
+    /**
+     * Returns the properties of the worker process that a test task cannot change once the process has started.
+     */
+    private static Object workerKey(WorkerProcessBuilder builder) {
+        JavaExecHandleBuilder javaCommand = builder.getJavaCommand();
+        Map<String, String> environment = new TreeMap<String, String>();
+        for (Map.Entry<String, Object> entry : javaCommand.getEnvironment().entrySet()) {
+            environment.put(entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return Arrays.asList(javaCommand.getExecutable(), javaCommand.getAllJvmArgs(), javaCommand.getWorkingDir(), environment, builder.getLogLevel());
+    }
+
+    /**
+     * Stops the session, and returns the worker to the pool. A worker whose session could not be stopped may still be running tests, so it is stopped
+     * and discarded instead.
+     */
+    public void stop() {
+        if (worker != null) {
+            boolean sessionStopped = false;
+            try {
+                worker.stopSession();
+                sessionStopped = true;
+            } finally {
+                if (sessionStopped) {
+                    pool.release(worker);
+                } else {
+                    pool.discard(worker);
+                }
+            }
+        }
+    }
+}
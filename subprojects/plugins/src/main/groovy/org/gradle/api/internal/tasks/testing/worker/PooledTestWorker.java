@@ -0,0 +1,170 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestOutputEvent;
+import org.gradle.internal.UncheckedException;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.ExecException;
+import org.gradle.process.internal.WorkerProcess;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The build process end of a {@link ReusableTestWorker}. Forwards the test events of the current session to the session's result processor,
+ * and notices the end of the session when the worker completes its test suite.
+ */
+class PooledTestWorker implements TestResultProcessor {
+    private final Object key;
+    private final WorkerProcess workerProcess;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private ReusableTestWorkerProtocol worker;
+    private volatile TestResultProcessor sessionResultProcessor;
+    private Object sessionSuiteId;
+    private boolean sessionRunning;
+    private boolean exited;
+    private Throwable failure;
+
+    PooledTestWorker(Object key, WorkerProcess workerProcess) {
+        this.key = key;
+        this.workerProcess = workerProcess;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public boolean isExited() {
+        lock.lock();
+        try {
+            return exited;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void connect() {
+        ObjectConnection connection = workerProcess.getConnection();
+        connection.useParameterSerializers(TestEventSerializer.create());
+        connection.addIncoming(TestResultProcessor.class, this);
+        worker = connection.addOutgoing(ReusableTestWorkerProtocol.class);
+        connection.connect();
+    }
+
+    /**
+     * Blocks until the worker process exits.
+     */
+    void waitForExit() {
+        Throwable exitFailure = null;
+        try {
+            workerProcess.waitForStop();
+        } catch (Throwable t) {
+            exitFailure = t;
+        }
+        lock.lock();
+        try {
+            exited = true;
+            failure = exitFailure;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void startSession(TestWorkerSession session, TestResultProcessor resultProcessor) {
+        lock.lock();
+        try {
+            sessionResultProcessor = resultProcessor;
+            sessionSuiteId = null;
+            sessionRunning = true;
+        } finally {
+            lock.unlock();
+        }
+        worker.startSession(session);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        worker.processTestClass(testClass);
+    }
+
+    /**
+     * Stops the current session, and blocks until the worker has reported all of its test events.
+     */
+    public void stopSession() {
+        worker.stopSession();
+        lock.lock();
+        try {
+            while (sessionRunning && !exited) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+            if (sessionRunning) {
+                throw new ExecException(String.format("Test worker %s stopped before it completed its tests.", workerProcess), failure);
+            }
+            sessionResultProcessor = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Requests that the worker stops. Does not block.
+     */
+    public void stop() {
+        worker.stop();
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        if (test instanceof WorkerTestClassProcessor.WorkerTestSuiteDescriptor) {
+            lock.lock();
+            try {
+                sessionSuiteId = test.getId();
+            } finally {
+                lock.unlock();
+            }
+        }
+        sessionResultProcessor.started(test, event);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        sessionResultProcessor.completed(testId, event);
+        lock.lock();
+        try {
+            if (testId.equals(sessionSuiteId)) {
+                sessionRunning = false;
+                condition.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        sessionResultProcessor.output(testId, event);
+    }
+
+    public void failure(Object testId, Throwable result) {
+        sessionResultProcessor.failure(testId, result);
+    }
+}
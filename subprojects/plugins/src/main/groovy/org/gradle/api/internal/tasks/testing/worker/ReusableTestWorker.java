@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.classloader.ClassLoaderUtils;
+import org.gradle.internal.classloader.ClasspathUtil;
+import org.gradle.internal.classloader.DefaultClassLoaderFactory;
+import org.gradle.internal.classloader.FilteringClassLoader;
+import org.gradle.internal.id.IdGenerator;
+import org.gradle.internal.io.ClassLoaderObjectInputStream;
+import org.gradle.internal.service.DefaultServiceRegistry;
+import org.gradle.internal.service.ServiceRegistry;
+import org.gradle.listener.ContextClassLoaderProxy;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.internal.WorkerProcessContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A test worker that runs the tests of several test tasks, one session at a time, so that the test JVM can be kept between test tasks.
+ *
+ * <p>The worker is started without any application classes. Each session loads the test classes and the test framework in new ClassLoaders, which are closed
+ * and discarded at the end of the session along with any state the tests left in them. The system properties are also restored at the end of each session.
+ */
+public class ReusableTestWorker implements Action<WorkerProcessContext>, ReusableTestWorkerProtocol, Serializable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReusableTestWorker.class);
+    private static final String[] TEST_FRAMEWORK_PACKAGES = {"org.gradle.api.internal.tasks.testing.junit.", "org.gradle.api.internal.tasks.testing.testng."};
+    private transient CountDownLatch completed;
+    private transient WorkerProcessContext workerProcessContext;
+    private transient TestResultProcessor resultProcessor;
+    private transient TestClassProcessor processor;
+    private transient DefaultServiceRegistry sessionServices;
+    private transient Properties systemProperties;
+    private transient List<ClassLoader> sessionClassLoaders;
+
+    public void execute(WorkerProcessContext workerProcessContext) {
+        LOGGER.info("{} started.", workerProcessContext.getDisplayName());
+
+        this.workerProcessContext = workerProcessContext;
+        completed = new CountDownLatch(1);
+
+        System.setProperty(TestWorker.WORKER_ID_SYS_PROPERTY, workerProcessContext.getWorkerId().toString());
+
+        ObjectConnection serverConnection = workerProcessContext.getServerConnection();
+        serverConnection.useParameterSerializers(TestEventSerializer.create());
+        resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        serverConnection.addIncoming(ReusableTestWorkerProtocol.class, this);
+        serverConnection.connect();
+
+        try {
+            completed.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            LOGGER.info("{} stopped.", workerProcessContext.getDisplayName());
+        }
+    }
+
+    public void startSession(TestWorkerSession session) {
+        Thread.currentThread().setName("Test worker");
+        systemProperties = (Properties) System.getProperties().clone();
+        sessionClassLoaders = new ArrayList<ClassLoader>();
+        sessionServices = new TestWorker.TestFrameworkServiceRegistry(workerProcessContext);
+        IdGenerator<Object> idGenerator = sessionServices.get(IdGenerator.class);
+
+        processor = new WorkerTestClassProcessor(new SessionTestClassProcessor(session, sessionServices), idGenerator.generateId(),
+                workerProcessContext.getDisplayName(), new TrueTimeProvider());
+        processor.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.processTestClass(testClass);
+        } finally {
+            // Clean the interrupted status
+            Thread.interrupted();
+        }
+    }
+
+    public void stopSession() {
+        Thread.currentThread().setName("Test worker");
+        try {
+            processor.stop();
+        } finally {
+            processor = null;
+            resetJvm();
+        }
+    }
+
+    /**
+     * Cleans out any security manager and system properties the tests might have installed, and discards the services and ClassLoaders of the session.
+     * The ClassLoaders are closed, so that the worker does not keep the application's jars open. The security manager installed by the tests may refuse
+     * to be removed, so the other steps are not skipped when it does.
+     */
+    private void resetJvm() {
+        try {
+            System.setSecurityManager(null);
+        } finally {
+            try {
+                System.setProperties(systemProperties);
+            } finally {
+                systemProperties = null;
+                try {
+                    sessionServices.close();
+                } finally {
+                    sessionServices = null;
+                    for (ClassLoader classLoader : sessionClassLoaders) {
+                        ClassLoaderUtils.tryClose(classLoader);
+                    }
+                    sessionClassLoaders = null;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        completed.countDown();
+    }
+
+    /**
+     * Loads the test framework for a session, and runs the tests with the session's ClassLoader as the context ClassLoader.
+     */
+    private class SessionTestClassProcessor implements TestClassProcessor {
+        private final TestWorkerSession session;
+        private final ServiceRegistry services;
+        private TestClassProcessor delegate;
+
+        SessionTestClassProcessor(TestWorkerSession session, ServiceRegistry services) {
+            this.session = session;
+            this.services = services;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            ClassLoader applicationClassLoader = new DefaultClassLoaderFactory().createIsolatedClassLoader(session.getApplicationClassPath());
+            sessionClassLoaders.add(applicationClassLoader);
+            FilteringClassLoader sharedApplicationClasses = new FilteringClassLoader(applicationClassLoader);
+            for (String sharedPackage : session.getSharedPackages()) {
+                sharedApplicationClasses.allowPackage(sharedPackage);
+            }
+            ClassLoader workerClassLoader = ReusableTestWorker.class.getClassLoader();
+            List<URL> implementationClassPath = ClasspathUtil.getClasspath(workerClassLoader);
+            ClassLoader testFrameworkClassLoader = new TestFrameworkClassLoader(implementationClassPath, sharedApplicationClasses, workerClassLoader);
+            sessionClassLoaders.add(testFrameworkClassLoader);
+
+            WorkerTestClassProcessorFactory factory;
+            try {
+                ObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(session.getSerializedProcessorFactory()), testFrameworkClassLoader);
+                factory = (WorkerTestClassProcessorFactory) instr.readObject();
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+
+            ContextClassLoaderProxy<TestClassProcessor> proxy = new ContextClassLoaderProxy<TestClassProcessor>(
+                    TestClassProcessor.class, factory.create(services), applicationClassLoader);
+            delegate = proxy.getSource();
+            delegate.startProcessing(resultProcessor);
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            if (delegate != null) {
+                delegate.processTestClass(testClass);
+            }
+        }
+
+        public void stop() {
+            if (delegate != null) {
+                delegate.stop();
+            }
+        }
+    }
+
+    /**
+     * Loads the Gradle classes that integrate with a test framework afresh, so that they link against the test framework classes of the session.
+     * All other Gradle classes are shared with the worker, and the test framework classes are loaded from the session's application ClassLoader.
+     */
+    static class TestFrameworkClassLoader extends URLClassLoader {
+        private final ClassLoader applicationClassLoader;
+        private final ClassLoader workerClassLoader;
+
+        TestFrameworkClassLoader(List<URL> implementationClassPath, ClassLoader applicationClassLoader, ClassLoader workerClassLoader) {
+            super(implementationClassPath.toArray(new URL[implementationClassPath.size()]), null);
+            this.applicationClassLoader = applicationClassLoader;
+            this.workerClassLoader = workerClassLoader;
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> cl = findLoadedClass(name);
+            if (cl == null) {
+                if (isTestFrameworkIntegrationClass(name)) {
+                    cl = findClass(name);
+                } else {
+                    try {
+                        cl = applicationClassLoader.loadClass(name);
+                    } catch (ClassNotFoundException e) {
+                        cl = workerClassLoader.loadClass(name);
+                    }
+                }
+            }
+            if (resolve) {
+                resolveClass(cl);
+            }
+            return cl;
+        }
+
+        private boolean isTestFrameworkIntegrationClass(String name) {
+            for (String testFrameworkPackage : TEST_FRAMEWORK_PACKAGES) {
+                if (name.startsWith(testFrameworkPackage)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
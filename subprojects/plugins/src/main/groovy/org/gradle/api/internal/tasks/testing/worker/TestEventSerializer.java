@@ -22,12 +22,13 @@ import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.internal.id.CompositeIdGenerator;
 import org.gradle.messaging.remote.internal.Message;
 import org.gradle.messaging.serialize.*;
-import org.gradle.messaging.serialize.kryo.StatefulSerializer;
 
-public class TestEventSerializer implements StatefulSerializer<Object[]> {
-    private final Serializer<Object> paramSerializer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
-    public TestEventSerializer() {
+public class TestEventSerializer {
+    public static SerializerRegistry<Object> create() {
         DefaultSerializerRegistry<Object> registry = new DefaultSerializerRegistry<Object>();
         registry.register(DefaultTestClassRunInfo.class, new DefaultTestClassRunInfoSerializer());
         registry.register(CompositeIdGenerator.CompositeId.class, new IdSerializer());
@@ -40,31 +41,8 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         registry.register(TestCompleteEvent.class, new TestCompleteEventSerializer());
         registry.register(DefaultTestOutputEvent.class, new DefaultTestOutputEventSerializer());
         registry.register(Throwable.class, new ThrowableSerializer());
-        paramSerializer = registry.build();
-    }
-
-    public ObjectReader<Object[]> newReader(final Decoder decoder) {
-        return new ObjectReader<Object[]>() {
-            public Object[] read() throws Exception {
-                int count = decoder.readSmallInt();
-                Object[] params = new Object[count];
-                for (int i = 0; i < params.length; i++) {
-                    params[i] = paramSerializer.read(decoder);
-                }
-                return params;
-            }
-        };
-    }
-
-    public ObjectWriter<Object[]> newWriter(final Encoder encoder) {
-        return new ObjectWriter<Object[]>() {
-            public void write(Object[] value) throws Exception {
-                encoder.writeSmallInt(value.length);
-                for (int i = 0; i < value.length; i++) {
-                    paramSerializer.write(encoder, value[i]);
-                }
-            }
-        };
+        registry.register(TestWorkerSession.class, new TestWorkerSessionSerializer());
+        return registry;
     }
 
     private static class NullableSerializer<T> implements Serializer<T> {
@@ -110,6 +88,34 @@ public class TestEventSerializer implements StatefulSerializer<Object[]> {
         }
     }
 
+    private static class TestWorkerSessionSerializer implements Serializer<TestWorkerSession> {
+        public TestWorkerSession read(Decoder decoder) throws Exception {
+            int classPathSize = decoder.readSmallInt();
+            List<URI> classPath = new ArrayList<URI>(classPathSize);
+            for (int i = 0; i < classPathSize; i++) {
+                classPath.add(new URI(decoder.readString()));
+            }
+            int sharedPackagesSize = decoder.readSmallInt();
+            List<String> sharedPackages = new ArrayList<String>(sharedPackagesSize);
+            for (int i = 0; i < sharedPackagesSize; i++) {
+                sharedPackages.add(decoder.readString());
+            }
+            return new TestWorkerSession(classPath, sharedPackages, decoder.readBinary());
+        }
+
+        public void write(Encoder encoder, TestWorkerSession value) throws Exception {
+            encoder.writeSmallInt(value.getApplicationClassPath().size());
+            for (URI uri : value.getApplicationClassPath()) {
+                encoder.writeString(uri.toString());
+            }
+            encoder.writeSmallInt(value.getSharedPackages().size());
+            for (String sharedPackage : value.getSharedPackages()) {
+                encoder.writeString(sharedPackage);
+            }
+            encoder.writeBinary(value.getSerializedProcessorFactory());
+        }
+    }
+
     private static class DefaultTestClassRunInfoSerializer implements Serializer<DefaultTestClassRunInfo> {
         public DefaultTestClassRunInfo read(Decoder decoder) throws Exception {
             return new DefaultTestClassRunInfo(decoder.readString());
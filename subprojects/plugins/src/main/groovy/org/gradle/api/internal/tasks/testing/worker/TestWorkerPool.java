@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+import org.gradle.process.internal.WorkerProcess;
+import org.gradle.process.internal.WorkerProcessBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Keeps the test worker processes started by test tasks, so that later test tasks, in the same build or in a later build run by the same daemon, can use them
+ * instead of starting new processes. A worker can be used by a test task whose JVM options are the same as those of the test task that started it.
+ *
+ * <p>Use of the pool is enabled with the {@value #REUSE_WORKERS_PROPERTY} system property.
+ */
+public class TestWorkerPool implements Stoppable {
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
+    private static final Logger LOGGER = Logging.getLogger(TestWorkerPool.class);
+
+    private final Object lock = new Object();
+    private final int maxIdleWorkers;
+    private final StoppableExecutor executor;
+    private final List<PooledTestWorker> allWorkers = new ArrayList<PooledTestWorker>();
+    private final LinkedList<PooledTestWorker> idleWorkers = new LinkedList<PooledTestWorker>();
+
+    public TestWorkerPool(ExecutorFactory executorFactory, int maxIdleWorkers) {
+        this.maxIdleWorkers = maxIdleWorkers;
+        this.executor = executorFactory.create("Test worker pool");
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(REUSE_WORKERS_PROPERTY);
+    }
+
+    /**
+     * Returns an idle worker started with the given JVM options, or null if there is none.
+     */
+    PooledTestWorker reserveIdleWorker(Object key) {
+        synchronized (lock) {
+            Iterator<PooledTestWorker> it = idleWorkers.iterator();
+            while (it.hasNext()) {
+                PooledTestWorker candidate = it.next();
+                if (candidate.isExited()) {
+                    it.remove();
+                    allWorkers.remove(candidate);
+                } else if (candidate.getKey().equals(key)) {
+                    it.remove();
+                    return candidate;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Starts a new worker, using the given builder.
+     */
+    PooledTestWorker reserveNewWorker(Object key, WorkerProcessBuilder builder) {
+        WorkerProcess workerProcess = builder.build();
+        workerProcess.start();
+        final PooledTestWorker worker = new PooledTestWorker(key, workerProcess);
+        worker.connect();
+        executor.execute(new Runnable() {
+            public void run() {
+                worker.waitForExit();
+            }
+        });
+        synchronized (lock) {
+            allWorkers.add(worker);
+        }
+        LOGGER.debug("Started test worker {}.", workerProcess);
+        return worker;
+    }
+
+    /**
+     * Returns a worker whose session has been stopped to the pool. Stops the least recently used workers when there are too many idle workers.
+     */
+    void release(PooledTestWorker worker) {
+        List<PooledTestWorker> evicted = new ArrayList<PooledTestWorker>();
+        synchronized (lock) {
+            idleWorkers.addLast(worker);
+            while (idleWorkers.size() > maxIdleWorkers) {
+                PooledTestWorker candidate = idleWorkers.removeFirst();
+                allWorkers.remove(candidate);
+                evicted.add(candidate);
+            }
+        }
+        for (PooledTestWorker candidate : evicted) {
+            candidate.stop();
+        }
+    }
+
+    /**
+     * Stops a worker whose session could not be stopped, and removes it from the pool.
+     */
+    void discard(PooledTestWorker worker) {
+        synchronized (lock) {
+            allWorkers.remove(worker);
+            idleWorkers.remove(worker);
+        }
+        if (!worker.isExited()) {
+            worker.stop();
+        }
+    }
+
+    public void stop() {
+        List<PooledTestWorker> workers;
+        synchronized (lock) {
+            workers = new ArrayList<PooledTestWorker>(allWorkers);
+            allWorkers.clear();
+            idleWorkers.clear();
+        }
+        LOGGER.debug("Stopping {} test worker(s).", workers.size());
+        for (PooledTestWorker worker : workers) {
+            if (!worker.isExited()) {
+                worker.stop();
+            }
+        }
+        executor.stop();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * The details a reusable test worker needs to run the tests of one test task.
+ */
+public class TestWorkerSession {
+    private final List<URI> applicationClassPath;
+    private final List<String> sharedPackages;
+    private final byte[] serializedProcessorFactory;
+
+    public TestWorkerSession(List<URI> applicationClassPath, List<String> sharedPackages, byte[] serializedProcessorFactory) {
+        this.applicationClassPath = applicationClassPath;
+        this.sharedPackages = sharedPackages;
+        this.serializedProcessorFactory = serializedProcessorFactory;
+    }
+
+    public List<URI> getApplicationClassPath() {
+        return applicationClassPath;
+    }
+
+    public List<String> getSharedPackages() {
+        return sharedPackages;
+    }
+
+    /**
+     * Returns the serialized {@link org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory} for the test framework.
+     * It is deserialized by the worker, using the ClassLoader it creates for this session.
+     */
+    public byte[] getSerializedProcessorFactory() {
+        return serializedProcessorFactory;
+    }
+}
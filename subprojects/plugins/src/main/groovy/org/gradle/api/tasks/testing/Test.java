@@ -31,6 +31,7 @@ import org.gradle.api.internal.tasks.testing.NoMatchingTestsReporter;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.detection.DefaultTestExecuter;
+import org.gradle.api.internal.tasks.testing.detection.TestClassSummaryCache;
 import org.gradle.api.internal.tasks.testing.detection.TestExecuter;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
@@ -40,6 +41,7 @@ import org.gradle.api.internal.tasks.testing.junit.result.*;
 import org.gradle.api.internal.tasks.testing.logging.*;
 import org.gradle.api.internal.tasks.testing.results.TestListenerAdapter;
 import org.gradle.api.internal.tasks.testing.testng.TestNGTestFramework;
+import org.gradle.api.internal.tasks.testing.worker.TestWorkerPool;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.reporting.DirectoryReport;
 import org.gradle.api.reporting.Reporting;
@@ -51,6 +53,7 @@ import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.listener.ClosureBackedMethodInvocationDispatch;
 import org.gradle.listener.ListenerBroadcast;
@@ -477,6 +480,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        Map<String, Long> previousTestClassDurations = readPreviousTestClassDurations(binaryResultsDir);
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -496,7 +500,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 getTestListenerBroadcaster().getSource(), testOutputListenerBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            TestWorkerPool workerPool = TestWorkerPool.isEnabled() ? getServices().get(TestWorkerPool.class) : null;
+            TestClassSummaryCache classSummaryCache = getServices().get(TestClassSummaryCache.class);
+            ExecutorFactory executorFactory = getServices().get(ExecutorFactory.class);
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), previousTestClassDurations, workerPool, classSummaryCache,
+                    executorFactory);
         }
 
         try {
@@ -543,6 +551,26 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
     }
 
+    private Map<String, Long> readPreviousTestClassDurations(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        TestResultSerializer serializer = new TestResultSerializer(binaryResultsDir);
+        if (getMaxParallelForks() < 2 || !serializer.isHasResults()) {
+            return durations;
+        }
+        try {
+            serializer.read(new Action<TestClassResult>() {
+                public void execute(TestClassResult result) {
+                    durations.put(result.getClassName(), result.getDuration());
+                }
+            });
+        } catch (Exception e) {
+            // The results may have been written by another version of Gradle. The durations are only used to balance the test classes between forks.
+            getLogger().debug("Could not read the test class durations of the previous run.", e);
+            durations.clear();
+        }
+        return durations;
+    }
+
     /**
      * Returns the {@link org.gradle.api.tasks.testing.TestListener} broadcaster.  This broadcaster will send messages to all listeners that have been registered with the ListenerManager.
      */
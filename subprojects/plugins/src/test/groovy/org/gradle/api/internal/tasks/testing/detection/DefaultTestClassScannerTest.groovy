@@ -46,6 +46,8 @@ public class DefaultTestClassScannerTest {
                 visitor.visitFile({new File('class1.class')} as FileVisitDetails)
                 visitor.visitFile({new File('class2.class')} as FileVisitDetails)
             }
+            one(detector).readTestClasses([new File('class1.class'), new File('class2.class')])
+            inSequence(sequence)
             one(detector).startDetection(processor)
             inSequence(sequence)
             one(detector).processTestClass(new File('class1.class'))
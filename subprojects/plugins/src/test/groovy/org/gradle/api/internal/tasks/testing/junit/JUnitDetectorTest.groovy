@@ -0,0 +1,126 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.api.internal.tasks.testing.detection.TestClassSummary
+import org.gradle.api.internal.tasks.testing.detection.TestClassSummaryCache
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+class JUnitDetectorTest extends Specification {
+    def processor = Mock(TestClassProcessor)
+    def detector = new JUnitDetector(new ClassFileExtractionManager(Mock(Factory)))
+    def executorFactory = new DefaultExecutorFactory()
+
+    def setup() {
+        detector.startDetection(processor)
+    }
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "detects test class"() {
+        when:
+        detector.processTestClass(classFile(SomeTest))
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == SomeTest.name })
+    }
+
+    @IgnoreIf({ Runtime.runtime.availableProcessors() < 2 })
+    def "uses class files read ahead of detection"() {
+        def cache = Mock(TestClassSummaryCache)
+        def files = (1..200).collect { classFile(SomeTest) }
+        detector.classSummaryCache = cache
+        detector.executorFactory = executorFactory
+
+        when:
+        detector.readTestClasses(files)
+
+        then:
+        200 * cache.get(_, _ as Factory) >> new TestClassSummary("org/gradle/ReadAhead", "java/lang/Object", true, false)
+
+        when:
+        detector.processTestClass(classFile(SomeTest))
+
+        then:
+        0 * cache._
+        1 * processor.processTestClass({ it.testClassName == "org.gradle.ReadAhead" })
+    }
+
+    def "does not read class files ahead of detection when no executor factory is available"() {
+        def cache = Mock(TestClassSummaryCache)
+        def files = (1..200).collect { classFile(SomeTest) }
+        detector.classSummaryCache = cache
+
+        when:
+        detector.readTestClasses(files)
+
+        then:
+        0 * cache._
+
+        when:
+        detector.processTestClass(classFile(SomeTest))
+
+        then:
+        1 * cache.get(_, _ as Factory) >> new TestClassSummary("org/gradle/Cached", "java/lang/Object", true, false)
+        1 * processor.processTestClass({ it.testClassName == "org.gradle.Cached" })
+    }
+
+    def "uses cached summary of class file"() {
+        def cache = Mock(TestClassSummaryCache)
+        detector.classSummaryCache = cache
+
+        when:
+        detector.processTestClass(classFile(SomeTest))
+
+        then:
+        1 * cache.get({ it.startsWith(JUnitDetector.name + ":") }, _ as Factory) >> new TestClassSummary("org/gradle/Cached", "java/lang/Object", true, false)
+        1 * processor.processTestClass({ it.testClassName == "org.gradle.Cached" })
+    }
+
+    def "parses class file that is not in the cache"() {
+        def cache = Mock(TestClassSummaryCache)
+        detector.classSummaryCache = cache
+
+        when:
+        detector.processTestClass(classFile(SomeTest))
+
+        then:
+        1 * cache.get(_, _ as Factory) >> { String key, Factory factory -> factory.create() }
+        1 * processor.processTestClass({ it.testClassName == SomeTest.name })
+    }
+
+    def classFile(Class<?> type) {
+        return new File(type.getResource("/" + type.name.replace(".", "/") + ".class").toURI())
+    }
+
+    @RunWith(JUnit4)
+    static class SomeTest {
+        @Test
+        void test() {
+        }
+    }
+}
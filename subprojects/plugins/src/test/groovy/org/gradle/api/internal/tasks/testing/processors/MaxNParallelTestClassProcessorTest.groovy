@@ -167,4 +167,87 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def assignsLongTestClassesAsSoonAsTheyAreFoundAndBalancesTheRemainderWhenPreviousDurationsAreKnown() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [Slow: 100L, Medium: 80L, Fast1: 8L, Fast2: 6L, Fast3: 4L])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        ["Fast1", "Slow"].each { name -> processor.processTestClass(testClass(name)) }
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Fast1" })
+
+        then:
+        1 * factory.create() >> processor2
+        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Slow" })
+
+        when:
+        ["Fast2", "Medium", "Fast3"].each { name -> processor.processTestClass(testClass(name)) }
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Medium" })
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Fast2" })
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Fast3" })
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
+    def assignsTestClassesThatDidNotRunPreviouslyAsAverageTestClassesWhenPreviousDurationsAreKnown() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [Slow: 100L, Fast1: 2L, Fast2: 2L, Fast3: 2L, Fast4: 2L])
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+        factory.create() >>> [Mock(TestClassProcessor), Mock(TestClassProcessor)]
+        actorFactory.createActor(_) >>> [Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor1 }, Stub(Actor) { getProxy(TestClassProcessor) >> asyncProcessor2 }]
+
+        when:
+        ["Slow", "Fast1", "Fast2", "Unknown", "Fast3"].each { name -> processor.processTestClass(testClass(name)) }
+
+        then:
+        1 * asyncProcessor1.processTestClass({ it.testClassName == "Slow" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Fast1" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Unknown" })
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        processor.stop()
+
+        then:
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Fast2" })
+        1 * asyncProcessor2.processTestClass({ it.testClassName == "Fast3" })
+    }
+
+    def testClass(String name) {
+        Stub(TestClassRunInfo) { getTestClassName() >> name }
+    }
 }
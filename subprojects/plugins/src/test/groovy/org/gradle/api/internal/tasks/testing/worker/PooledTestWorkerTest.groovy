@@ -0,0 +1,125 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.internal.ExecException
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class PooledTestWorkerTest extends ConcurrentSpec {
+    def protocol = Mock(ReusableTestWorkerProtocol)
+    def process = Mock(WorkerProcess)
+    def resultProcessor = Mock(TestResultProcessor)
+    def session = new TestWorkerSession([], [], new byte[0])
+    def suite = new WorkerTestClassProcessor.WorkerTestSuiteDescriptor("suite", "Gradle Test Executor 1")
+    def worker = new PooledTestWorker("key", process)
+
+    def setup() {
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(ReusableTestWorkerProtocol) >> protocol
+        }
+        _ * process.connection >> connection
+        worker.connect()
+    }
+
+    def "stopping a session blocks until the worker completes its test suite"() {
+        given:
+        worker.startSession(session, resultProcessor)
+        worker.started(suite, new TestStartEvent(0))
+
+        when:
+        async {
+            start {
+                worker.stopSession()
+                instant.sessionStopped
+            }
+            thread.blockUntil.stopRequested
+            thread.block()
+            instant.suiteCompleted
+            worker.completed(suite.id, new TestCompleteEvent(0))
+        }
+
+        then:
+        1 * protocol.stopSession() >> { instant.stopRequested }
+        1 * resultProcessor.completed(suite.id, _)
+        instant.sessionStopped > instant.suiteCompleted
+    }
+
+    def "forwards events of a session to the result processor of the session"() {
+        def nextResultProcessor = Mock(TestResultProcessor)
+        def nextSuite = new WorkerTestClassProcessor.WorkerTestSuiteDescriptor("next-suite", "Gradle Test Executor 1")
+
+        given:
+        protocol.stopSession() >> { worker.completed(suite.id, new TestCompleteEvent(0)) }
+        worker.startSession(session, resultProcessor)
+        worker.started(suite, new TestStartEvent(0))
+        worker.stopSession()
+
+        when:
+        worker.startSession(session, nextResultProcessor)
+        worker.started(nextSuite, new TestStartEvent(0))
+
+        then:
+        1 * nextResultProcessor.started(nextSuite, _)
+        0 * resultProcessor._
+    }
+
+    def "stopping a session fails when the worker exits before completing its test suite"() {
+        def exitFailure = new ExecException("Process exited with a non-zero exit value.")
+        def failure = null
+
+        given:
+        process.waitForStop() >> { throw exitFailure }
+        worker.startSession(session, resultProcessor)
+        worker.started(suite, new TestStartEvent(0))
+
+        when:
+        async {
+            start {
+                try {
+                    worker.stopSession()
+                } catch (ExecException e) {
+                    failure = e
+                }
+            }
+            thread.blockUntil.stopRequested
+            worker.waitForExit()
+        }
+
+        then:
+        1 * protocol.stopSession() >> { instant.stopRequested }
+        failure instanceof ExecException
+        failure.cause == exitFailure
+        worker.exited
+    }
+
+    def "stopping a session fails when the worker has already exited"() {
+        given:
+        process.waitForStop() >> { throw new ExecException("Process exited with a non-zero exit value.") }
+        worker.startSession(session, resultProcessor)
+        worker.waitForExit()
+
+        when:
+        worker.stopSession()
+
+        then:
+        thrown(ExecException)
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
+import org.gradle.internal.classloader.ClasspathUtil
+import org.gradle.internal.service.ServiceRegistry
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.internal.WorkerProcessContext
+import org.gradle.util.GUtil
+import org.gradle.util.SetSystemProperties
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.security.Permission
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ReusableTestWorkerTest extends Specification {
+    @Rule SetSystemProperties systemProperties = new SetSystemProperties()
+    def worker = new ReusableTestWorker()
+    def threadName = Thread.currentThread().name
+
+    def cleanup() {
+        RefusingSecurityManager.refuseRemoval = false
+        System.securityManager = null
+        SessionProcessorFactory.observations.clear()
+        Thread.currentThread().name = threadName
+    }
+
+    def "restores system properties and removes security manager at the end of a session"() {
+        given:
+        System.setProperty("org.gradle.test.session", "original")
+
+        when:
+        def failures = runSessions(session(new SessionProcessorFactory(installSecurityManager: true)))
+
+        then:
+        failures.empty
+        System.getProperty("org.gradle.test.session") == "original"
+        System.securityManager == null
+        SessionProcessorFactory.observations.collect { it.services }.every { it.closed }
+    }
+
+    def "restores system properties and closes session services when security manager cannot be removed"() {
+        given:
+        System.setProperty("org.gradle.test.session", "original")
+        RefusingSecurityManager.refuseRemoval = true
+
+        when:
+        def failures = runSessions(session(new SessionProcessorFactory(installSecurityManager: true)))
+
+        then:
+        failures.size() == 1
+        failures[0] instanceof SecurityException
+        System.getProperty("org.gradle.test.session") == "original"
+        SessionProcessorFactory.observations.collect { it.services }.every { it.closed }
+    }
+
+    def "loads application classes afresh for each session"() {
+        when:
+        def failures = runSessions(session(new SessionProcessorFactory()), session(new SessionProcessorFactory()))
+
+        then:
+        failures.empty
+        SessionProcessorFactory.observations.size() == 2
+        SessionProcessorFactory.observations.every { it.previousState == null }
+        SessionProcessorFactory.observations[0].applicationClass != SessionProcessorFactory.observations[1].applicationClass
+    }
+
+    def "test framework ClassLoader loads test framework integration classes itself and other classes from the application or worker"() {
+        def workerClassLoader = getClass().classLoader
+        def implementationClassPath = ClasspathUtil.getClasspath(workerClassLoader)
+        def applicationClassPath = [StateHolder, GroovyObject].collect { ClasspathUtil.getClasspathForClass(it).toURI().toURL() }
+        def applicationClassLoader = new URLClassLoader(applicationClassPath as URL[], (ClassLoader) null)
+        def loader1 = new ReusableTestWorker.TestFrameworkClassLoader(implementationClassPath, applicationClassLoader, workerClassLoader)
+        def loader2 = new ReusableTestWorker.TestFrameworkClassLoader(implementationClassPath, applicationClassLoader, workerClassLoader)
+        def integrationClass = "org.gradle.api.internal.tasks.testing.junit.JUnitTestClassProcessor"
+
+        expect:
+        loader1.loadClass(integrationClass).classLoader.is(loader1)
+        loader2.loadClass(integrationClass).classLoader.is(loader2)
+        loader1.loadClass(TestClassProcessor.name).is(TestClassProcessor)
+        loader1.loadClass(StateHolder.name).classLoader.is(applicationClassLoader)
+    }
+
+    private List<Throwable> runSessions(TestWorkerSession... sessions) {
+        List<Throwable> failures = []
+        def testClass = Stub(TestClassRunInfo) {
+            getTestClassName() >> StateHolder.name
+        }
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(TestResultProcessor) >> Stub(TestResultProcessor)
+            connect() >> {
+                sessions.each { session ->
+                    worker.startSession(session)
+                    worker.processTestClass(testClass)
+                    try {
+                        worker.stopSession()
+                    } catch (Throwable t) {
+                        failures << t
+                    }
+                }
+                worker.stop()
+            }
+        }
+        def workerContext = Stub(WorkerProcessContext) {
+            getWorkerId() >> "worker"
+            getDisplayName() >> "Test worker"
+            getServerConnection() >> connection
+        }
+        worker.execute(workerContext)
+        return failures
+    }
+
+    private static TestWorkerSession session(SessionProcessorFactory factory) {
+        def applicationClassPath = [StateHolder, GroovyObject].collect { ClasspathUtil.getClasspathForClass(it).toURI() }
+        return new TestWorkerSession(applicationClassPath, [], GUtil.serialize(factory))
+    }
+
+    static class StateHolder {
+        public static String state
+    }
+
+    static class SessionProcessorFactory implements WorkerTestClassProcessorFactory, Serializable {
+        static final List<Map<String, Object>> observations = new CopyOnWriteArrayList<Map<String, Object>>()
+        boolean installSecurityManager
+
+        TestClassProcessor create(ServiceRegistry services) {
+            return new SessionProcessor(services, installSecurityManager)
+        }
+    }
+
+    /**
+     * Behaves like a test: uses a class of the application and changes the state of the JVM.
+     */
+    static class SessionProcessor implements TestClassProcessor {
+        final ServiceRegistry services
+        final boolean installSecurityManager
+
+        SessionProcessor(ServiceRegistry services, boolean installSecurityManager) {
+            this.services = services
+            this.installSecurityManager = installSecurityManager
+        }
+
+        void startProcessing(TestResultProcessor resultProcessor) {
+        }
+
+        void processTestClass(TestClassRunInfo testClass) {
+            def applicationClass = Thread.currentThread().contextClassLoader.loadClass(testClass.testClassName)
+            def stateField = applicationClass.getField("state")
+            SessionProcessorFactory.observations << [services: services, applicationClass: applicationClass, previousState: stateField.get(null)]
+            stateField.set(null, "changed")
+            System.setProperty("org.gradle.test.session", "changed")
+            if (installSecurityManager) {
+                System.securityManager = new RefusingSecurityManager()
+            }
+        }
+
+        void stop() {
+        }
+    }
+
+    static class RefusingSecurityManager extends SecurityManager {
+        static volatile boolean refuseRemoval
+
+        @Override
+        void checkPermission(Permission perm) {
+            if (refuseRemoval && perm.name == "setSecurityManager") {
+                throw new SecurityException("Cannot remove security manager.")
+            }
+        }
+    }
+}
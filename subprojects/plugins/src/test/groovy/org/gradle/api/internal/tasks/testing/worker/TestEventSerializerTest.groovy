@@ -33,7 +33,7 @@ import org.gradle.messaging.serialize.OutputStreamBackedEncoder
 import spock.lang.Specification
 
 class TestEventSerializerTest extends Specification {
-    def serializer = new TestEventSerializer()
+    def serializer = TestEventSerializer.create().build()
 
     def "serializes DefaultTestClassRunInfo"() {
         def info = new DefaultTestClassRunInfo("some-test")
@@ -193,10 +193,26 @@ class TestEventSerializerTest extends Specification {
         result[0].cause.message == "cause"
     }
 
+    def "serializes TestWorkerSession"() {
+        def session = new TestWorkerSession([new URI("file:/some/dir"), new URI("file:/some/lib.jar")], ["junit.framework"], [1, 2, 3] as byte[])
+
+        when:
+        def result = serialize(session)
+
+        then:
+        result.length == 1
+        result[0] instanceof TestWorkerSession
+        result[0].applicationClassPath == [new URI("file:/some/dir"), new URI("file:/some/lib.jar")]
+        result[0].sharedPackages == ["junit.framework"]
+        result[0].serializedProcessorFactory == [1, 2, 3] as byte[]
+    }
+
     def Object[] serialize(Object... source) {
         def outstr = new ByteArrayOutputStream()
-        serializer.newWriter(new OutputStreamBackedEncoder(outstr)).write(source)
+        def encoder = new OutputStreamBackedEncoder(outstr)
+        source.each { serializer.write(encoder, it) }
 
-        return serializer.newReader(new InputStreamBackedDecoder(new ByteArrayInputStream(outstr.toByteArray()))).read()
+        def decoder = new InputStreamBackedDecoder(new ByteArrayInputStream(outstr.toByteArray()))
+        return source.collect { serializer.read(decoder) } as Object[]
     }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.worker
+
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.internal.WorkerProcess
+import org.gradle.process.internal.WorkerProcessBuilder
+import spock.lang.Specification
+
+class TestWorkerPoolTest extends Specification {
+    def executor = Mock(StoppableExecutor)
+    def executorFactory = Stub(ExecutorFactory) {
+        create(_) >> executor
+    }
+    def pool = new TestWorkerPool(executorFactory, 2)
+
+    def "starts a new worker and reuses it once released"() {
+        def builder = builder()
+
+        when:
+        def worker = pool.reserveNewWorker("key", builder)
+
+        then:
+        worker.key == "key"
+        1 * executor.execute(_)
+
+        when:
+        pool.release(worker)
+
+        then:
+        pool.reserveIdleWorker("other") == null
+        pool.reserveIdleWorker("key") == worker
+        pool.reserveIdleWorker("key") == null
+    }
+
+    def "discards idle workers that have exited"() {
+        def worker = pool.reserveNewWorker("key", builder())
+        pool.release(worker)
+
+        when:
+        worker.waitForExit()
+
+        then:
+        pool.reserveIdleWorker("key") == null
+    }
+
+    def "stops the least recently released workers when there are too many idle workers"() {
+        def protocol1 = Mock(ReusableTestWorkerProtocol)
+        def protocol2 = Mock(ReusableTestWorkerProtocol)
+        def protocol3 = Mock(ReusableTestWorkerProtocol)
+        def worker1 = pool.reserveNewWorker("key", builder(protocol1))
+        def worker2 = pool.reserveNewWorker("key", builder(protocol2))
+        def worker3 = pool.reserveNewWorker("key", builder(protocol3))
+
+        when:
+        pool.release(worker1)
+        pool.release(worker2)
+        pool.release(worker3)
+
+        then:
+        1 * protocol1.stop()
+        0 * protocol2.stop()
+        0 * protocol3.stop()
+    }
+
+    def "stops a discarded worker and never reuses it"() {
+        def protocol = Mock(ReusableTestWorkerProtocol)
+        def worker = pool.reserveNewWorker("key", builder(protocol))
+
+        when:
+        pool.discard(worker)
+
+        then:
+        1 * protocol.stop()
+        pool.reserveIdleWorker("key") == null
+
+        when:
+        pool.stop()
+
+        then:
+        0 * protocol.stop()
+    }
+
+    def "stops all workers and the executor when stopped"() {
+        def protocol = Mock(ReusableTestWorkerProtocol)
+        pool.reserveNewWorker("key", builder(protocol))
+
+        when:
+        pool.stop()
+
+        then:
+        1 * protocol.stop()
+        1 * executor.stop()
+    }
+
+    def builder(ReusableTestWorkerProtocol protocol = Mock(ReusableTestWorkerProtocol)) {
+        def connection = Stub(ObjectConnection) {
+            addOutgoing(ReusableTestWorkerProtocol) >> protocol
+        }
+        def process = Stub(WorkerProcess) {
+            getConnection() >> connection
+        }
+        return Stub(WorkerProcessBuilder) {
+            build() >> process
+        }
+    }
+}
@@ -80,7 +80,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
                 }
             }
 
-            one(connection).useParameterSerializer(withParam(instanceOf(TestEventSerializer)))
+            one(connection).useParameterSerializers(withParam(notNullValue()))
             one(connection).connect()
 
             ignoring(resultProcessor)
@@ -21,6 +21,7 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.*;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
@@ -37,12 +38,31 @@ public class HttpClientHelper {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final HttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    // The context holds per-connection state such as authentication and redirects, so it must not be shared between threads using the same client
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, new HttpConnectionPool());
+    }
+
+    /**
+     * Creates a client that uses connections from the given pool, so that they can be reused by other clients using the same pool.
+     */
+    public HttpClientHelper(HttpSettings settings, HttpConnectionPool connectionPool) {
         alwaysUseKeepAliveConnections();
 
-        DefaultHttpClient client = new SystemDefaultHttpClient();
+        final ClientConnectionManager connectionManager = connectionPool.getConnectionManager();
+        DefaultHttpClient client = new SystemDefaultHttpClient() {
+            @Override
+            protected ClientConnectionManager createClientConnectionManager() {
+                return connectionManager;
+            }
+        };
         new HttpClientConfigurer(settings).configure(client);
         this.client = new DecompressingHttpClient(client);
     }
@@ -105,10 +125,11 @@ public class HttpClientHelper {
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
+        BasicHttpContext context = httpContext.get();
+        context.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
 
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        return client.execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
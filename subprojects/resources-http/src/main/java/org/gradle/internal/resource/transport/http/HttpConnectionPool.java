@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of keep-alive HTTP connections, keyed by route, that is shared by all the HTTP clients created by a process. Connections are kept open
+ * between builds, so that a build in a daemon can reuse the connections opened by an earlier build.
+ */
+public class HttpConnectionPool implements Stoppable {
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 5;
+    private static final int MAX_CONNECTIONS_TOTAL = 50;
+    private static final long IDLE_TIMEOUT_SECONDS = 60;
+
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final AtomicLong connectionsLeased = new AtomicLong();
+    private final PoolingClientConnectionManager connectionManager;
+
+    public HttpConnectionPool() {
+        connectionManager = new CountingConnectionManager(SchemeRegistryFactory.createSystemDefault());
+        connectionManager.setDefaultMaxPerRoute(Integer.parseInt(System.getProperty("http.maxConnections", String.valueOf(DEFAULT_MAX_CONNECTIONS_PER_ROUTE))));
+        connectionManager.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+    }
+
+    public ClientConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    /**
+     * Returns a snapshot of the number of connections opened and leased from this pool so far.
+     */
+    public Statistics getStatistics() {
+        return new Statistics(connectionsOpened.get(), connectionsLeased.get());
+    }
+
+    /**
+     * Closes the connections that the server has indicated are expired, and those that have not been used for some time.
+     */
+    public void closeIdleConnections() {
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        connectionManager.shutdown();
+    }
+
+    public static class Statistics {
+        private final long connectionsOpened;
+        private final long connectionsLeased;
+
+        private Statistics(long connectionsOpened, long connectionsLeased) {
+            this.connectionsOpened = connectionsOpened;
+            this.connectionsLeased = connectionsLeased;
+        }
+
+        public long getConnectionsOpened() {
+            return connectionsOpened;
+        }
+
+        /**
+         * Returns the number of requests that were sent over a connection opened by an earlier request.
+         */
+        public long getConnectionsReused() {
+            return Math.max(0, connectionsLeased - connectionsOpened);
+        }
+
+        /**
+         * Returns the statistics for the requests made since the given snapshot was taken.
+         */
+        public Statistics since(Statistics earlier) {
+            return new Statistics(connectionsOpened - earlier.connectionsOpened, connectionsLeased - earlier.connectionsLeased);
+        }
+    }
+
+    private class CountingConnectionManager extends PoolingClientConnectionManager {
+        public CountingConnectionManager(SchemeRegistry schemeRegistry) {
+            super(schemeRegistry);
+        }
+
+        @Override
+        protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schemeRegistry) {
+            return new DefaultClientConnectionOperator(schemeRegistry) {
+                @Override
+                public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local, HttpContext context, HttpParams params) throws IOException {
+                    connectionsOpened.incrementAndGet();
+                    super.openConnection(conn, target, local, context, params);
+                }
+            };
+        }
+
+        @Override
+        public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+            connectionsLeased.incrementAndGet();
+            return super.requestConnection(route, state);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2015 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.transport.http
+
+import org.apache.http.HttpHost
+import org.apache.http.conn.routing.HttpRoute
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class HttpConnectionPoolTest extends Specification {
+    def pool = new HttpConnectionPool()
+
+    def cleanup() {
+        pool.stop()
+    }
+
+    def "counts connections leased since a snapshot was taken"() {
+        def route = new HttpRoute(new HttpHost("localhost", 80))
+        def manager = pool.connectionManager
+
+        given:
+        def connection = manager.requestConnection(route, null).getConnection(1, TimeUnit.SECONDS)
+        manager.releaseConnection(connection, 1, TimeUnit.MINUTES)
+        def start = pool.statistics
+
+        when:
+        2.times {
+            def c = manager.requestConnection(route, null).getConnection(1, TimeUnit.SECONDS)
+            manager.releaseConnection(c, 1, TimeUnit.MINUTES)
+        }
+        def statistics = pool.statistics.since(start)
+
+        then:
+        statistics.connectionsOpened == 0
+        statistics.connectionsReused == 2
+    }
+
+    def "starts with no connections"() {
+        expect:
+        pool.statistics.connectionsOpened == 0
+        pool.statistics.connectionsReused == 0
+    }
+}